@@ -1,14 +1,176 @@
 package com.edutool.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
+    /**
+     * Connection pool shared by every outbound call of {@link #restTemplate} in
+     * {@code pooled} mode. Size {@code http.client.max-per-route} to at least
+     * {@code github.fetch.max-concurrency} plus the report job concurrency, since
+     * nearly all traffic goes to api.github.com; callers that cannot lease a
+     * connection within {@code http.client.connection-request-timeout} fail fast.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "http.client.mode", havingValue = "pooled", matchIfMissing = true)
+    public PoolingHttpClientConnectionManager httpConnectionManager(
+            @Value("${http.client.max-total:20}") int maxTotal,
+            @Value("${http.client.max-per-route:10}") int maxPerRoute,
+            @Value("${http.client.connect-timeout:PT5S}") Duration connectTimeout,
+            @Value("${http.client.read-timeout:PT30S}") Duration readTimeout,
+            @Value("${http.client.time-to-live:PT5M}") Duration timeToLive) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.of(timeToLive))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Request factory of {@link #restTemplate} in {@code pooled} mode: Apache HttpClient
+     * over {@link #httpConnectionManager} with a total-time deadline per request. A bean
+     * so the client and the deadline's canceller thread are closed on shutdown.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "http.client.mode", havingValue = "pooled", matchIfMissing = true)
+    public HttpComponentsClientHttpRequestFactory pooledRequestFactory(
+            PoolingHttpClientConnectionManager connectionManager,
+            @Value("${http.client.read-timeout:PT30S}") Duration readTimeout,
+            @Value("${http.client.total-timeout:PT2M}") Duration totalTimeout,
+            @Value("${http.client.connection-request-timeout:PT10S}") Duration connectionRequestTimeout,
+            @Value("${http.client.idle-timeout:PT1M}") Duration idleTimeout) {
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(connectionRequestTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleTimeout))
+                .build();
+        return new DeadlineHttpComponentsRequestFactory(client, totalTimeout);
+    }
+
+    /**
+     * Outbound HTTP client. {@code http.client.mode}:
+     * <ul>
+     *   <li><b>pooled</b> (default) – {@link #pooledRequestFactory}, with keep-alive,
+     *       idle eviction and connect / read / total timeouts.</li>
+     *   <li><b>http2</b> – the JDK client, negotiating HTTP/2 with one multiplexed
+     *       connection per host. It has no pool to size or observe; the read timeout
+     *       bounds the wait for response headers and the total timeout is not applied
+     *       to reading the body.</li>
+     * </ul>
+     */
+    @Bean
+    public RestTemplate restTemplate(
+            ObjectProvider<HttpComponentsClientHttpRequestFactory> pooledRequestFactory,
+            @Value("${http.client.mode:pooled}") String mode,
+            @Value("${http.client.connect-timeout:PT5S}") Duration connectTimeout,
+            @Value("${http.client.read-timeout:PT30S}") Duration readTimeout) {
+
+        if ("http2".equalsIgnoreCase(mode)) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(connectTimeout)
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(client);
+            factory.setReadTimeout(readTimeout);
+            return new RestTemplate(factory);
+        }
+        return new RestTemplate(pooledRequestFactory.getObject());
+    }
+
+    /**
+     * Bounded pool used to fetch the repositories of a commit report concurrently.
+     * When the queue is full the calling thread runs the fetch itself instead of failing.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor githubFetchExecutor(
+            @Value("${github.fetch.max-concurrency:4}") int maxConcurrency,
+            @Value("${github.fetch.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("github-fetch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /**
+     * Applies push webhooks apart from report fetches. Bounded, and a full queue is
+     * rejected rather than run on the delivering request's thread: the caller then
+     * marks the repository stale so GitHub gets its response in time.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor githubWebhookExecutor(
+            @Value("${github.webhook.threads:2}") int threads,
+            @Value("${github.webhook.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("github-webhook-");
+        return executor;
+    }
+
+    /**
+     * Worker pool for queued commit report jobs. Jobs wait on GitHub's 202
+     * "computing" responses here rather than on request threads.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor commitReportJobExecutor(
+            @Value("${github.report-jobs.concurrency:2}") int concurrency,
+            @Value("${github.report-jobs.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-job-");
+        return executor;
+    }
+
+    /**
+     * Writes report progress events to SSE subscribers, so a slow client blocks one of
+     * these threads instead of a repository fetch.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public ThreadPoolTaskExecutor reportProgressExecutor(
+            @Value("${github.report.progress.send-threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("report-progress-");
+        return executor;
     }
 }
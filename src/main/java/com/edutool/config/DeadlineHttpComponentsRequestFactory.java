@@ -0,0 +1,161 @@
+package com.edutool.config;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Apache HttpClient request factory that aborts a request once its total time
+ * (pool lease, connect, sending and reading the whole body) exceeds a deadline.
+ * The connect and read timeouts bound each step but not a server that keeps
+ * trickling bytes; the deadline does, so no request thread is pinned for longer.
+ * An aborted request surfaces as a {@code RestClientException} – a
+ * {@code ResourceAccessException} when it was cut off before the response arrived.
+ *
+ * <p>The deadline starts when the request is executed and is called off when the
+ * response is closed. Declared as a bean so its canceller thread is shut down with
+ * the context.
+ */
+class DeadlineHttpComponentsRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private final Duration deadline;
+    private final ScheduledExecutorService canceller;
+
+    // Hands the Apache request from postProcessHttpRequest to createRequest, on the same thread
+    private final ThreadLocal<Cancellable> created = new ThreadLocal<>();
+
+    DeadlineHttpComponentsRequestFactory(HttpClient httpClient, Duration deadline) {
+        super(httpClient);
+        this.deadline = deadline;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "http-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Called-off deadlines leave the queue at once instead of holding their request until they expire
+        executor.setRemoveOnCancelPolicy(true);
+        this.canceller = Executors.unconfigurableScheduledExecutorService(executor);
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        try {
+            ClientHttpRequest request = super.createRequest(uri, httpMethod);
+            Cancellable cancellable = created.get();
+            return cancellable != null ? new DeadlineRequest(request, cancellable) : request;
+        } finally {
+            created.remove();
+        }
+    }
+
+    @Override
+    protected void postProcessHttpRequest(ClassicHttpRequest request) {
+        if (request instanceof Cancellable cancellable) created.set(cancellable);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        canceller.shutdownNow();
+        super.destroy();
+    }
+
+    private class DeadlineRequest implements ClientHttpRequest {
+        private final ClientHttpRequest delegate;
+        private final Cancellable cancellable;
+
+        DeadlineRequest(ClientHttpRequest delegate, Cancellable cancellable) {
+            this.delegate = delegate;
+            this.cancellable = cancellable;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            ScheduledFuture<?> timer = canceller.schedule(cancellable::cancel, deadline.toMillis(), TimeUnit.MILLISECONDS);
+            try {
+                return new DeadlineResponse(delegate.execute(), timer);
+            } catch (IOException | RuntimeException ex) {
+                timer.cancel(false);
+                throw ex;
+            }
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return delegate.getMethod();
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return delegate.getAttributes();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+
+    private static class DeadlineResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final ScheduledFuture<?> timer;
+
+        DeadlineResponse(ClientHttpResponse delegate, ScheduledFuture<?> timer) {
+            this.delegate = delegate;
+            this.timer = timer;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public void close() {
+            timer.cancel(false);
+            delegate.close();
+        }
+    }
+}
@@ -37,35 +37,48 @@ public class JwtFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
 
         String authHeader = request.getHeader("Authorization");
+        String queryToken = "GET".equals(request.getMethod()) ? request.getParameter("access_token") : null;
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
             try {
                 if (jwtUtil.validateToken(token)) {
-                    String username = jwtUtil.extractUsername(token);
-
-                    UserDetails userDetails =
-                            userDetailsService.loadUserByUsername(username);
-
-                    // Debug: Print user details and authorities
-                    logger.debug("Authenticated user: {}", username);
-                    logger.debug("User authorities: {}", userDetails.getAuthorities());
-
-                    UsernamePasswordAuthenticationToken authentication =
-                            new UsernamePasswordAuthenticationToken(
-                                    userDetails, null, userDetails.getAuthorities());
-
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                    authenticate(jwtUtil.extractUsername(token));
                 }
             } catch (Exception e) {
                 logger.warn("Invalid JWT token: {}", e.getMessage());
                 // Continue to next filter without setting authentication
             }
+        } else if (queryToken != null) {
+            // Path tokens (e.g. for EventSource streams) only authenticate the URL they were issued for
+            try {
+                String username = jwtUtil.extractPathTokenUsername(queryToken, request.getServletPath());
+                if (username != null) {
+                    authenticate(username);
+                }
+            } catch (Exception e) {
+                logger.warn("Invalid path token: {}", e.getMessage());
+            }
         }
 
         filterChain.doFilter(request, response);
     }
 
+    private void authenticate(String username) {
+        UserDetails userDetails =
+                userDetailsService.loadUserByUsername(username);
+
+        // Debug: Print user details and authorities
+        logger.debug("Authenticated user: {}", username);
+        logger.debug("User authorities: {}", userDetails.getAuthorities());
+
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(
+                        userDetails, null, userDetails.getAuthorities());
+
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
         String path = request.getServletPath();
@@ -30,6 +30,7 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers(
                     "/api/auth/**",
+                    "/api/github/webhook",
                     "/error",
                     "/v3/api-docs/**",
                     "/swagger-ui/**",
@@ -3,13 +3,22 @@ package com.edutool.controller;
 import com.edutool.dto.request.GithubRepositoryRequest;
 import com.edutool.dto.request.CommitReportRequest;
 import com.edutool.dto.response.BaseResponse;
+import com.edutool.dto.response.CommitReportJobResponse;
 import com.edutool.dto.response.CommitReportResponse;
 import com.edutool.dto.response.CommitReportUrlResponse;
+import com.edutool.dto.response.CourseCommitReportResponse;
 import com.edutool.dto.response.GroupRepositoryResponse;
+import com.edutool.dto.response.GithubRateLimitResponse;
 import com.edutool.dto.response.GithubRepositoryResponse;
+import com.edutool.dto.response.HttpClientPoolResponse;
+import com.edutool.service.CommitReportJobService;
 import com.edutool.service.CommitReportService;
 import com.edutool.service.GithubApiService;
+import com.edutool.service.GithubRateLimiter;
 import com.edutool.service.GithubRepositoryService;
+import com.edutool.service.HttpClientPoolMonitor;
+import com.edutool.service.ReportProgressTracker;
+import com.edutool.util.JwtUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -21,7 +30,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayInputStream;
 import java.time.LocalDate;
@@ -37,6 +49,11 @@ public class GithubRepositoryController {
     private final GithubRepositoryService repositoryService;
     private final GithubApiService githubApiService;
     private final CommitReportService commitReportService;
+    private final CommitReportJobService commitReportJobService;
+    private final GithubRateLimiter githubRateLimiter;
+    private final HttpClientPoolMonitor httpClientPoolMonitor;
+    private final ReportProgressTracker reportProgressTracker;
+    private final JwtUtil jwtUtil;
 
     // -------------------------------------------------------------------------
     //  CRUD
@@ -146,16 +163,20 @@ public class GithubRepositoryController {
     @Operation(summary = "Xuất báo cáo commit CSV",
                description = "Gọi GitHub public API để lấy commit statistics của toàn bộ sinh viên trong project, " +
                               "sau đó xuất ra file CSV để frontend upload lên Supabase Storage. " +
+                              "File CSV được stream trực tiếp từng dòng xuống client. " +
+                              "Repository đã đồng bộ trong khoảng github.report.freshness được đọc từ DB, không gọi lại GitHub. " +
                               "Project phải có ít nhất 1 repository được đánh dấu 'selected'.")
-    public ResponseEntity<InputStreamResource> generateCsvReport(
+    public ResponseEntity<StreamingResponseBody> generateCsvReport(
             @PathVariable Integer projectId,
             @Parameter(description = "Từ ngày (yyyy-MM-dd), bỏ trống = không giới hạn")
             @RequestParam(required = false) String since,
             @Parameter(description = "Đến ngày (yyyy-MM-dd), bỏ trống = không giới hạn")
-            @RequestParam(required = false) String until) {
+            @RequestParam(required = false) String until,
+            @Parameter(description = "true = bỏ qua dữ liệu đã lưu, lấy lại từ GitHub")
+            @RequestParam(required = false, defaultValue = "false") boolean refresh) {
 
-        ByteArrayInputStream csvStream = githubApiService.generateCommitCsvReport(
-                projectId, since, until);
+        StreamingResponseBody csvBody = githubApiService.generateCommitCsvReport(
+                projectId, since, until, GithubRateLimiter.Priority.INTERACTIVE, refresh);
 
         String filename = String.format("commit-report-project-%d-%s.csv",
                 projectId, LocalDate.now().format(DateTimeFormatter.ISO_DATE));
@@ -166,27 +187,194 @@ public class GithubRepositoryController {
         return ResponseEntity.ok()
                 .headers(headers)
                 .contentType(MediaType.parseMediaType("text/csv; charset=UTF-8"))
-                .body(new InputStreamResource(csvStream));
+                .body(csvBody);
     }
 
     @GetMapping("/project/{projectId}/report/json")
     @PreAuthorize("hasAnyRole('ADMIN', 'LECTURER')")
     @Operation(summary = "Xuất báo cáo commit JSON",
                description = "Trả về dữ liệu commit statistics dạng JSON thay vì CSV, " +
-                              "giúp frontend dễ dàng hiển thị và xử lý dữ liệu.")
+                              "giúp frontend dễ dàng hiển thị và xử lý dữ liệu. " +
+                              "Repository đã đồng bộ trong khoảng github.report.freshness được đọc từ DB, không gọi lại GitHub.")
     public ResponseEntity<BaseResponse<CommitReportResponse>> generateJsonReport(
             @PathVariable Integer projectId,
             @Parameter(description = "Từ ngày (yyyy-MM-dd), bỏ trống = không giới hạn")
             @RequestParam(required = false) String since,
             @Parameter(description = "Đến ngày (yyyy-MM-dd), bỏ trống = không giới hạn")
-            @RequestParam(required = false) String until) {
+            @RequestParam(required = false) String until,
+            @Parameter(description = "true = bỏ qua dữ liệu đã lưu, lấy lại từ GitHub")
+            @RequestParam(required = false, defaultValue = "false") boolean refresh) {
 
         CommitReportResponse report = githubApiService.generateCommitJsonReport(
-                projectId, since, until);
+                projectId, since, until, GithubRateLimiter.Priority.INTERACTIVE, refresh);
 
         return ResponseEntity.ok(BaseResponse.success("Report generated successfully", report));
     }
 
+    @PostMapping("/project/{projectId}/report/progress/token")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LECTURER')")
+    @Operation(summary = "Lấy token ngắn hạn để mở stream tiến độ báo cáo",
+               description = "EventSource của trình duyệt không gửi được header Authorization. " +
+                              "Token trả về chỉ dùng được cho GET /project/{projectId}/report/progress " +
+                              "qua query ?access_token=..., hết hạn sau jwt.path-token-expiration (mặc định 60 giây).")
+    public ResponseEntity<BaseResponse<String>> createReportProgressToken(@PathVariable Integer projectId) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        String token = jwtUtil.generatePathToken(username, reportProgressPath(projectId));
+        return ResponseEntity.ok(BaseResponse.success("Progress stream token created", token));
+    }
+
+    @GetMapping(value = "/project/{projectId}/report/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'LECTURER')")
+    @Operation(summary = "Theo dõi tiến độ tạo báo cáo commit (SSE)",
+               description = "Stream server-sent events cho từng repository của project: queued, fetching, " +
+                              "computing (GitHub trả 202), done, error; cuối cùng là completed hoặc failed. " +
+                              "Client kết nối muộn nhận lại các sự kiện của lần tạo báo cáo gần nhất; " +
+                              "gửi header Last-Event-ID (hoặc query lastEventId) để chỉ nhận các sự kiện sau đó. " +
+                              "Xác thực bằng header Authorization, hoặc với EventSource bằng " +
+                              "?access_token= lấy từ POST .../report/progress/token (lấy token mới trước mỗi lần kết nối lại). " +
+                              "Áp dụng cho cả báo cáo CSV/JSON và job chạy nền.")
+    public SseEmitter streamReportProgress(
+            @PathVariable Integer projectId,
+            @Parameter(description = "Id sự kiện cuối cùng đã nhận (EventSource tự gửi khi kết nối lại)")
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @Parameter(description = "Như Last-Event-ID, cho EventSource mới mở lại với token mới")
+            @RequestParam(value = "lastEventId", required = false) Long lastEventIdParam) {
+
+        return reportProgressTracker.subscribe(projectId, lastEventId != null ? lastEventId : lastEventIdParam);
+    }
+
+    private static String reportProgressPath(Integer projectId) {
+        return "/api/github/repositories/project/" + projectId + "/report/progress";
+    }
+
+    // -------------------------------------------------------------------------
+    //  Report – whole course
+    // -------------------------------------------------------------------------
+
+    @GetMapping("/course/{courseId}/report/csv")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LECTURER')")
+    @Operation(summary = "Xuất báo cáo commit CSV cho cả môn học",
+               description = "Lấy commit statistics của tất cả repository trong course trong một lần gọi " +
+                              "(dùng chung giới hạn đồng thời và quota GitHub), trả về tổng hợp theo nhóm và theo sinh viên. " +
+                              "File CSV được stream trực tiếp xuống client.")
+    public ResponseEntity<StreamingResponseBody> generateCourseCsvReport(
+            @PathVariable Integer courseId,
+            @Parameter(description = "Từ ngày (yyyy-MM-dd), bỏ trống = không giới hạn")
+            @RequestParam(required = false) String since,
+            @Parameter(description = "Đến ngày (yyyy-MM-dd), bỏ trống = không giới hạn")
+            @RequestParam(required = false) String until,
+            @Parameter(description = "true = bỏ qua dữ liệu đã lưu, lấy lại từ GitHub")
+            @RequestParam(required = false, defaultValue = "false") boolean refresh) {
+
+        StreamingResponseBody csvBody = githubApiService.generateCourseCommitCsvReport(
+                courseId, since, until, GithubRateLimiter.Priority.INTERACTIVE, refresh);
+
+        String filename = String.format("commit-report-course-%d-%s.csv",
+                courseId, LocalDate.now().format(DateTimeFormatter.ISO_DATE));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(MediaType.parseMediaType("text/csv; charset=UTF-8"))
+                .body(csvBody);
+    }
+
+    @GetMapping("/course/{courseId}/report/json")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LECTURER')")
+    @Operation(summary = "Xuất báo cáo commit JSON cho cả môn học",
+               description = "Giống /course/{courseId}/report/csv nhưng trả về JSON: " +
+                              "trạng thái từng repository, tổng hợp theo nhóm và theo sinh viên.")
+    public ResponseEntity<BaseResponse<CourseCommitReportResponse>> generateCourseJsonReport(
+            @PathVariable Integer courseId,
+            @Parameter(description = "Từ ngày (yyyy-MM-dd), bỏ trống = không giới hạn")
+            @RequestParam(required = false) String since,
+            @Parameter(description = "Đến ngày (yyyy-MM-dd), bỏ trống = không giới hạn")
+            @RequestParam(required = false) String until,
+            @Parameter(description = "true = bỏ qua dữ liệu đã lưu, lấy lại từ GitHub")
+            @RequestParam(required = false, defaultValue = "false") boolean refresh) {
+
+        CourseCommitReportResponse report = githubApiService.generateCourseCommitJsonReport(
+                courseId, since, until, GithubRateLimiter.Priority.INTERACTIVE, refresh);
+
+        return ResponseEntity.ok(BaseResponse.success("Course report generated successfully", report));
+    }
+
+    // -------------------------------------------------------------------------
+    //  Report – background jobs
+    // -------------------------------------------------------------------------
+
+    @PostMapping("/project/{projectId}/report/jobs")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LECTURER')")
+    @Operation(summary = "Tạo job xuất báo cáo commit (chạy nền)",
+               description = "Đưa việc lấy commit statistics từ GitHub vào hàng đợi và trả về jobId ngay lập tức. " +
+                              "Dùng GET /report/jobs/{jobId} để theo dõi trạng thái (QUEUED, RUNNING, COMPLETED, FAILED); " +
+                              "job JSON trả kết quả trong response, job CSV tải về qua /report/jobs/{jobId}/csv.")
+    public ResponseEntity<BaseResponse<CommitReportJobResponse>> submitReportJob(
+            @PathVariable Integer projectId,
+            @Parameter(description = "Từ ngày (yyyy-MM-dd), bỏ trống = không giới hạn")
+            @RequestParam(required = false) String since,
+            @Parameter(description = "Đến ngày (yyyy-MM-dd), bỏ trống = không giới hạn")
+            @RequestParam(required = false) String until,
+            @Parameter(description = "Định dạng kết quả: json (mặc định) hoặc csv")
+            @RequestParam(required = false, defaultValue = "json") String format) {
+
+        CommitReportJobResponse job = commitReportJobService.submit(projectId, since, until, format);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(BaseResponse.success(HttpStatus.ACCEPTED.value(), "Report job queued", job));
+    }
+
+    @GetMapping("/report/jobs/{jobId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LECTURER')")
+    @Operation(summary = "Lấy trạng thái job báo cáo commit")
+    public ResponseEntity<BaseResponse<CommitReportJobResponse>> getReportJob(
+            @PathVariable String jobId) {
+
+        CommitReportJobResponse job = commitReportJobService.getJob(jobId);
+        return ResponseEntity.ok(BaseResponse.success("Report job retrieved successfully", job));
+    }
+
+    @GetMapping("/report/jobs/{jobId}/csv")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LECTURER')")
+    @Operation(summary = "Tải file CSV của job báo cáo commit đã hoàn thành")
+    public ResponseEntity<InputStreamResource> downloadReportJobCsv(
+            @PathVariable String jobId) {
+
+        ByteArrayInputStream csvStream = commitReportJobService.getCsv(jobId);
+
+        String filename = String.format("commit-report-project-%d-%s.csv",
+                commitReportJobService.getProjectId(jobId), LocalDate.now().format(DateTimeFormatter.ISO_DATE));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(MediaType.parseMediaType("text/csv; charset=UTF-8"))
+                .body(new InputStreamResource(csvStream));
+    }
+
+    @GetMapping("/rate-limit")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LECTURER')")
+    @Operation(summary = "Xem quota GitHub API hiện tại",
+               description = "Trả về số request còn lại, thời điểm reset và số request đang chờ " +
+                              "(interactive / background) trong bộ lập lịch gọi GitHub.")
+    public ResponseEntity<BaseResponse<GithubRateLimitResponse>> getRateLimit() {
+        return ResponseEntity.ok(BaseResponse.success("Rate limit retrieved successfully",
+                githubRateLimiter.snapshot()));
+    }
+
+    @GetMapping("/http-pool")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Xem trạng thái connection pool HTTP",
+               description = "Số kết nối đang dùng / rảnh / đang chờ của HTTP client gọi GitHub, " +
+                              "so với số luồng có thể gọi GitHub cùng lúc — dùng để chỉnh http.client.max-per-route.")
+    public ResponseEntity<BaseResponse<HttpClientPoolResponse>> getHttpPool() {
+        return ResponseEntity.ok(BaseResponse.success("HTTP client pool retrieved successfully",
+                httpClientPoolMonitor.snapshot()));
+    }
+
     // -------------------------------------------------------------------------
     //  Commit Report Storage URL
     // -------------------------------------------------------------------------
@@ -0,0 +1,49 @@
+package com.edutool.controller;
+
+import com.edutool.dto.response.BaseResponse;
+import com.edutool.service.GithubWebhookService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * GitHub webhook receiver. A recorded payload can be replayed locally with:
+ * <pre>
+ * SIG=$(openssl dgst -sha256 -hmac "$GITHUB_WEBHOOK_SECRET" push.json | sed 's/.* //')
+ * curl -X POST http://localhost:8080/api/github/webhook \
+ *      -H "X-GitHub-Event: push" -H "X-Hub-Signature-256: sha256=$SIG" \
+ *      -H "Content-Type: application/json" --data-binary @push.json
+ * </pre>
+ */
+@RestController
+@RequestMapping("/api/github/webhook")
+@RequiredArgsConstructor
+@Tag(name = "GitHub Webhook", description = "Nhận push event từ GitHub")
+public class GithubWebhookController {
+
+    private final GithubWebhookService webhookService;
+
+    @PostMapping
+    @Operation(summary = "Nhận GitHub webhook (push)",
+               description = "Không dùng JWT: request phải có chữ ký X-Hub-Signature-256 (HMAC-SHA256 với GITHUB_WEBHOOK_SECRET). " +
+                              "Push lên nhánh mặc định được cộng dồn vào commit_contributions và commit_details ở chế độ nền.")
+    public ResponseEntity<BaseResponse<List<String>>> receive(
+            @RequestHeader(value = "X-GitHub-Event", required = false) String event,
+            @RequestHeader(value = "X-Hub-Signature-256", required = false) String signature,
+            @RequestBody byte[] body) {
+
+        if (!webhookService.isSignatureValid(body, signature)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(BaseResponse.error(HttpStatus.UNAUTHORIZED.value(), "Invalid webhook signature"));
+        }
+        List<String> queued = webhookService.handle(event, body);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(BaseResponse.success(HttpStatus.ACCEPTED.value(),
+                        "Webhook accepted for " + queued.size() + " repositories", queued));
+    }
+}
@@ -0,0 +1,28 @@
+package com.edutool.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommitReportJobResponse {
+
+    private String jobId;
+    private Integer projectId;
+    private String since;
+    private String until;
+    private String format;
+    private String status;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+    // Only populated for completed JSON jobs; CSV jobs are downloaded separately
+    private CommitReportResponse report;
+}
@@ -0,0 +1,54 @@
+package com.edutool.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseCommitReportResponse {
+
+    private Integer courseId;
+    private String courseCode;
+    private String courseName;
+    private CommitReportResponse.PeriodInfo period;
+    private String generatedAt;
+    private boolean githubTokenConfigured;
+    private List<RepoStatus> repositories;
+    private List<GroupSummary> groups;
+    private List<CommitReportResponse.StudentSummary> students;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RepoStatus {
+        private String group;
+        private String projectCode;
+        private String repository;
+        private String status;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class GroupSummary {
+        private String group;
+        private Integer projectId;
+        private String projectCode;
+        private String projectName;
+        private int memberCount;
+        // Members with at least one commit in the period
+        private int activeMemberCount;
+        private List<String> repositories;
+        private int totalCommits;
+        private int totalAdditions;
+        private int totalDeletions;
+    }
+}
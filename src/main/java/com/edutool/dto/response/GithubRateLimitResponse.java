@@ -0,0 +1,42 @@
+package com.edutool.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GithubRateLimitResponse {
+
+    // Totals over all usable tokens; -1 until the first GitHub response has been seen
+    private int limit;
+    private int remaining;
+    private LocalDateTime resetAt;
+    private long secondsUntilReset;
+    private int interactiveReserve;
+    private int backgroundReserve;
+    private long backgroundPacingMs;
+    private int waitingInteractive;
+    private int waitingBackground;
+    private List<TokenQuota> tokens;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TokenQuota {
+        // Masked, only the last 4 characters are shown
+        private String token;
+        private String status;
+        private int limit;
+        private int remaining;
+        private LocalDateTime resetAt;
+        private String disabledReason;
+    }
+}
@@ -0,0 +1,39 @@
+package com.edutool.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HttpClientPoolResponse {
+
+    // "pooled" or "http2"; the counters below are only filled in pooled mode
+    private String mode;
+    private int maxTotal;
+    private int maxPerRoute;
+    private int leased;
+    private int available;
+    // Callers waiting for a connection – non-zero means the pool is too small for the load
+    private int pending;
+    // Threads that can call GitHub at the same time (fetch pool + report jobs)
+    private int githubConcurrency;
+    private List<RoutePool> routes;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RoutePool {
+        private String route;
+        private int max;
+        private int leased;
+        private int available;
+        private int pending;
+    }
+}
@@ -0,0 +1,32 @@
+package com.edutool.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportProgressEvent {
+
+    // Same value as the SSE event id; send it back as Last-Event-ID to resume
+    private long sequence;
+    // Changes whenever a new report generation starts for the project
+    private String runId;
+    private Integer projectId;
+    // STARTED, QUEUED, FETCHING, COMPUTING, DONE, ERROR, COMPLETED, FAILED
+    private String type;
+    private Integer repoId;
+    private String repository;
+    private String message;
+    // Commits of registered students read for the repository (DONE only)
+    private Integer commits;
+    // Repositories finished (DONE or ERROR) out of the total, for a progress bar
+    private int completedRepos;
+    private int totalRepos;
+    private LocalDateTime at;
+}
@@ -14,6 +14,9 @@ import java.util.List;
     @Index(name = "idx_contribution_student_id", columnList = "student_id"),
     @Index(name = "idx_contribution_repo_id", columnList = "repo_id"),
     @Index(name = "idx_student_repo", columnList = "student_id, repo_id")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_contribution_student_repo_week",
+                      columnNames = {"student_id", "repo_id", "year", "week_number"})
 })
 @Getter
 @Setter
@@ -12,6 +12,8 @@ import java.time.LocalDateTime;
     @Index(name = "idx_contribution_id", columnList = "contribution_id"),
     @Index(name = "idx_commit_hash", columnList = "commitHash"),
     @Index(name = "idx_committed_at", columnList = "committedAt")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_commit_details_commit_hash", columnNames = {"commit_hash"})
 })
 @Getter
 @Setter
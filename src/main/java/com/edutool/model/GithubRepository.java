@@ -37,6 +37,15 @@ public class GithubRepository {
     @CreationTimestamp
     private LocalDateTime createdAt;
 
+    // Last time the full contributor history was stored in commit_contributions
+    private LocalDateTime lastSyncedAt;
+
+    // Incremental sync cursor: newest commit already folded into commit_contributions
+    private String lastCommitSha;
+    private LocalDateTime lastCommitAt;
+    // ETag of the last /commits?since=lastCommitAt listing
+    private String commitsEtag;
+
     @OneToMany(mappedBy = "repository")
     private List<CommitContribution> contributions;
 }
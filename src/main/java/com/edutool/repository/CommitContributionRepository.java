@@ -6,11 +6,13 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CommitContributionRepository extends JpaRepository<CommitContribution, Integer> {
+public interface CommitContributionRepository extends JpaRepository<CommitContribution, Integer>,
+        CommitContributionRepositoryCustom {
 
     List<CommitContribution> findByRepository_RepoId(Integer repoId);
 
@@ -22,4 +24,28 @@ public interface CommitContributionRepository extends JpaRepository<CommitContri
     @Query("SELECT c FROM CommitContribution c WHERE c.repository.repoId = :repoId " +
            "ORDER BY c.year, c.weekNumber, c.student.studentCode")
     List<CommitContribution> findByRepoIdOrderByWeek(@Param("repoId") Integer repoId);
+
+    /**
+     * Weekly rows of the given repositories whose {@code year * 100 + week} lies in
+     * {@code [fromYearWeek, toYearWeek]}, as flat projections (no entity loading).
+     */
+    @Query("SELECT c.student.studentId AS studentId, c.repository.repoId AS repoId, " +
+           "c.year AS year, c.weekNumber AS weekNumber, c.totalCommits AS totalCommits, " +
+           "c.additions AS additions, c.deletions AS deletions " +
+           "FROM CommitContribution c WHERE c.repository.repoId IN :repoIds " +
+           "AND c.year * 100 + c.weekNumber BETWEEN :fromYearWeek AND :toYearWeek " +
+           "AND c.totalCommits > 0")
+    List<WeeklyContributionView> findWeeklyByRepoIds(@Param("repoIds") Collection<Integer> repoIds,
+                                                     @Param("fromYearWeek") int fromYearWeek,
+                                                     @Param("toYearWeek") int toYearWeek);
+
+    interface WeeklyContributionView {
+        Integer getStudentId();
+        Integer getRepoId();
+        Integer getYear();
+        Integer getWeekNumber();
+        Integer getTotalCommits();
+        Integer getAdditions();
+        Integer getDeletions();
+    }
 }
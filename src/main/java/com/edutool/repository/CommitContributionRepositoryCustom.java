@@ -0,0 +1,28 @@
+package com.edutool.repository;
+
+import com.edutool.model.CommitContribution;
+
+import java.util.Collection;
+
+public interface CommitContributionRepositoryCustom {
+
+    /**
+     * Inserts or overwrites weekly aggregates keyed by (student, repo, year, week)
+     * using JDBC batches instead of one select + save per row.
+     */
+    void upsertAll(Collection<CommitContribution> contributions);
+
+    /**
+     * Adds the given counts onto the stored weekly aggregates (inserting missing
+     * weeks), for folding in commits found by an incremental sync.
+     */
+    void addAll(Collection<CommitContribution> contributions);
+
+    /**
+     * Makes {@code contributions} the complete weekly history of the given
+     * repositories: rows of those repositories that are not among them are deleted
+     * (with their commit details), the rest are upserted. For full syncs, whose
+     * history replaces whatever was stored before.
+     */
+    void replaceAll(Collection<Integer> repoIds, Collection<CommitContribution> contributions);
+}
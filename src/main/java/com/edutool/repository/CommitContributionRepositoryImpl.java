@@ -0,0 +1,87 @@
+package com.edutool.repository;
+
+import com.edutool.model.CommitContribution;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class CommitContributionRepositoryImpl implements CommitContributionRepositoryCustom {
+
+    private static final int BATCH_SIZE = 500;
+
+    // Relies on uk_contribution_student_repo_week (changeset 19)
+    private static final String UPSERT_SQL =
+            "INSERT INTO commit_contributions " +
+            "(student_id, repo_id, github_author, week_number, year, total_commits, additions, deletions) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (student_id, repo_id, year, week_number) DO UPDATE SET " +
+            "github_author = EXCLUDED.github_author, " +
+            "total_commits = EXCLUDED.total_commits, " +
+            "additions = EXCLUDED.additions, " +
+            "deletions = EXCLUDED.deletions";
+
+    private static final String ADD_SQL =
+            "INSERT INTO commit_contributions " +
+            "(student_id, repo_id, github_author, week_number, year, total_commits, additions, deletions) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (student_id, repo_id, year, week_number) DO UPDATE SET " +
+            "github_author = EXCLUDED.github_author, " +
+            "total_commits = COALESCE(commit_contributions.total_commits, 0) + EXCLUDED.total_commits, " +
+            "additions = COALESCE(commit_contributions.additions, 0) + EXCLUDED.additions, " +
+            "deletions = COALESCE(commit_contributions.deletions, 0) + EXCLUDED.deletions";
+
+    // Rows of one repo whose (student, year, week) is not in the given key arrays
+    private static final String DELETE_MISSING_SQL =
+            "DELETE FROM commit_contributions c WHERE c.repo_id = ? AND NOT EXISTS (" +
+            "SELECT 1 FROM unnest(?::int[], ?::int[], ?::int[]) AS k(student_id, year, week_number) " +
+            "WHERE k.student_id = c.student_id AND k.year = c.year AND k.week_number = c.week_number)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void upsertAll(Collection<CommitContribution> contributions) {
+        batchUpdate(UPSERT_SQL, contributions);
+    }
+
+    @Override
+    public void addAll(Collection<CommitContribution> contributions) {
+        batchUpdate(ADD_SQL, contributions);
+    }
+
+    @Override
+    public void replaceAll(Collection<Integer> repoIds, Collection<CommitContribution> contributions) {
+        for (Integer repoId : repoIds) {
+            List<CommitContribution> rows = contributions.stream()
+                    .filter(c -> repoId.equals(c.getRepository().getRepoId()))
+                    .collect(Collectors.toList());
+            jdbcTemplate.update(DELETE_MISSING_SQL, ps -> {
+                ps.setInt(1, repoId);
+                ps.setArray(2, ps.getConnection().createArrayOf("integer",
+                        rows.stream().map(c -> c.getStudent().getStudentId()).toArray()));
+                ps.setArray(3, ps.getConnection().createArrayOf("integer",
+                        rows.stream().map(CommitContribution::getYear).toArray()));
+                ps.setArray(4, ps.getConnection().createArrayOf("integer",
+                        rows.stream().map(CommitContribution::getWeekNumber).toArray()));
+            });
+        }
+        batchUpdate(UPSERT_SQL, contributions);
+    }
+
+    private void batchUpdate(String sql, Collection<CommitContribution> contributions) {
+        if (contributions.isEmpty()) return;
+        jdbcTemplate.batchUpdate(sql, contributions, BATCH_SIZE, (ps, c) -> {
+            ps.setInt(1, c.getStudent().getStudentId());
+            ps.setInt(2, c.getRepository().getRepoId());
+            ps.setString(3, c.getGithubAuthor());
+            ps.setInt(4, c.getWeekNumber());
+            ps.setInt(5, c.getYear());
+            ps.setInt(6, c.getTotalCommits());
+            ps.setInt(7, c.getAdditions());
+            ps.setInt(8, c.getDeletions());
+        });
+    }
+}
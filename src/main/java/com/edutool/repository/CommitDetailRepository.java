@@ -0,0 +1,10 @@
+package com.edutool.repository;
+
+import com.edutool.model.CommitDetail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CommitDetailRepository extends JpaRepository<CommitDetail, Integer>,
+        CommitDetailRepositoryCustom {
+}
@@ -0,0 +1,16 @@
+package com.edutool.repository;
+
+import com.edutool.model.CommitDetail;
+
+import java.util.Collection;
+
+public interface CommitDetailRepositoryCustom {
+
+    /**
+     * Inserts commits in JDBC batches, skipping hashes that are already stored. Each
+     * detail's {@code contribution} only needs student, repository, year and week
+     * set: the row is attached to that stored weekly aggregate, which must exist.
+     * Line counts missing on a stored row are filled in when a later insert has them.
+     */
+    void insertAll(Collection<CommitDetail> details);
+}
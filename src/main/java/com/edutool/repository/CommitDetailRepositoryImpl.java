@@ -0,0 +1,46 @@
+package com.edutool.repository;
+
+import com.edutool.model.CommitDetail;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
+
+@RequiredArgsConstructor
+public class CommitDetailRepositoryImpl implements CommitDetailRepositoryCustom {
+
+    private static final int BATCH_SIZE = 1000;
+
+    // Relies on uk_commit_details_commit_hash (changeset 22)
+    private static final String INSERT_SQL =
+            "INSERT INTO commit_details " +
+            "(contribution_id, commit_hash, commit_message, files_changed, additions, deletions, committed_at, commit_url) " +
+            "SELECT c.contribution_id, ?, ?, ?, ?, ?, ?, ? FROM commit_contributions c " +
+            "WHERE c.student_id = ? AND c.repo_id = ? AND c.year = ? AND c.week_number = ? " +
+            "ON CONFLICT (commit_hash) DO UPDATE SET " +
+            "files_changed = COALESCE(commit_details.files_changed, EXCLUDED.files_changed), " +
+            "additions = COALESCE(commit_details.additions, EXCLUDED.additions), " +
+            "deletions = COALESCE(commit_details.deletions, EXCLUDED.deletions)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(Collection<CommitDetail> details) {
+        if (details.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT_SQL, details, BATCH_SIZE, (ps, d) -> {
+            ps.setString(1, d.getCommitHash());
+            ps.setString(2, d.getCommitMessage());
+            ps.setObject(3, d.getFilesChanged(), Types.INTEGER);
+            ps.setObject(4, d.getAdditions(), Types.INTEGER);
+            ps.setObject(5, d.getDeletions(), Types.INTEGER);
+            ps.setTimestamp(6, d.getCommittedAt() != null ? Timestamp.valueOf(d.getCommittedAt()) : null);
+            ps.setString(7, d.getCommitUrl());
+            ps.setInt(8, d.getContribution().getStudent().getStudentId());
+            ps.setInt(9, d.getContribution().getRepository().getRepoId());
+            ps.setInt(10, d.getContribution().getYear());
+            ps.setInt(11, d.getContribution().getWeekNumber());
+        });
+    }
+}
@@ -2,10 +2,13 @@ package com.edutool.repository;
 
 import com.edutool.model.GithubRepository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,4 +23,35 @@ public interface GithubRepositoryRepository extends JpaRepository<GithubReposito
 
     @Query("SELECT r FROM GithubRepository r WHERE r.project.course.courseId = :courseId ORDER BY r.createdAt DESC")
     List<GithubRepository> findByCourseId(@Param("courseId") Integer courseId);
+
+    List<GithubRepository> findByOwnerIgnoreCaseAndRepoNameIgnoreCase(String owner, String repoName);
+
+    @Modifying
+    @Query("UPDATE GithubRepository r SET r.lastSyncedAt = :syncedAt WHERE r.repoId IN :repoIds")
+    int markSynced(@Param("repoIds") Collection<Integer> repoIds, @Param("syncedAt") LocalDateTime syncedAt);
+
+    // Next report or scheduled sync refetches the repository
+    @Modifying
+    @Query("UPDATE GithubRepository r SET r.lastSyncedAt = NULL WHERE r.repoId = :repoId")
+    int markStale(@Param("repoId") Integer repoId);
+
+    @Modifying
+    @Query("UPDATE GithubRepository r SET r.lastCommitSha = :sha, r.lastCommitAt = :commitAt, " +
+           "r.commitsEtag = :etag WHERE r.repoId = :repoId")
+    int updateSyncCursor(@Param("repoId") Integer repoId, @Param("sha") String sha,
+                         @Param("commitAt") LocalDateTime commitAt, @Param("etag") String etag);
+
+    /**
+     * Moves the cursor only if nobody else moved it since {@code expectedSha} was read,
+     * so two concurrent incremental syncs cannot fold the same commits twice.
+     *
+     * @return 1 when the cursor was advanced, 0 when another sync got there first
+     */
+    @Modifying
+    @Query("UPDATE GithubRepository r SET r.lastCommitSha = :sha, r.lastCommitAt = :commitAt, " +
+           "r.commitsEtag = :etag, r.lastSyncedAt = :syncedAt " +
+           "WHERE r.repoId = :repoId AND r.lastCommitSha = :expectedSha")
+    int advanceSyncCursor(@Param("repoId") Integer repoId, @Param("expectedSha") String expectedSha,
+                          @Param("sha") String sha, @Param("commitAt") LocalDateTime commitAt,
+                          @Param("etag") String etag, @Param("syncedAt") LocalDateTime syncedAt);
 }
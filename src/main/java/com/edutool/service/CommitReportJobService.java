@@ -0,0 +1,183 @@
+package com.edutool.service;
+
+import com.edutool.dto.response.CommitReportJobResponse;
+import com.edutool.dto.response.CommitReportResponse;
+import com.edutool.exception.ResourceNotFoundException;
+import com.edutool.exception.ValidationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs commit report generation as background jobs so that GitHub's slow
+ * {@code /stats/contributors} computation (202 responses) is waited out on a
+ * worker thread instead of a request thread.
+ *
+ * <p>Jobs are kept in memory; finished jobs are evicted after
+ * {@code github.report-jobs.retention} (default 1 hour).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CommitReportJobService {
+
+    public enum JobStatus { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    public enum ReportFormat { JSON, CSV }
+
+    private final GithubApiService githubApiService;
+    @Qualifier("commitReportJobExecutor")
+    private final TaskExecutor commitReportJobExecutor;
+
+    @Value("${github.report-jobs.retention:PT1H}")
+    private Duration retention;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Queues a report for the given project and returns immediately.
+     *
+     * @param format {@code json} or {@code csv} (case-insensitive, defaults to json)
+     */
+    public CommitReportJobResponse submit(Integer projectId, String since, String until, String format) {
+        evictExpiredJobs();
+
+        ReportFormat reportFormat = parseFormat(format);
+        ReportJob job = new ReportJob(UUID.randomUUID().toString(), projectId, since, until, reportFormat);
+        jobs.put(job.jobId, job);
+
+        try {
+            commitReportJobExecutor.execute(() -> run(job));
+        } catch (TaskRejectedException ex) {
+            jobs.remove(job.jobId);
+            throw new ValidationException("Too many commit report jobs are queued, please retry later");
+        }
+        log.info("Queued commit report job {} for project {} ({})", job.jobId, projectId, reportFormat);
+        return toResponse(job);
+    }
+
+    public CommitReportJobResponse getJob(String jobId) {
+        return toResponse(findJob(jobId));
+    }
+
+    /** Returns the CSV produced by a completed {@link ReportFormat#CSV} job. */
+    public ByteArrayInputStream getCsv(String jobId) {
+        ReportJob job = findJob(jobId);
+        if (job.format != ReportFormat.CSV) {
+            throw new ValidationException("Job " + jobId + " was not submitted with format=csv");
+        }
+        if (job.status != JobStatus.COMPLETED) {
+            throw new ValidationException("Job " + jobId + " is not completed yet (status: " + job.status + ")");
+        }
+        return new ByteArrayInputStream(job.csv);
+    }
+
+    public Integer getProjectId(String jobId) {
+        return findJob(jobId).projectId;
+    }
+
+    // =========================================================================
+    //  Worker
+    // =========================================================================
+
+    private void run(ReportJob job) {
+        job.status = JobStatus.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        try {
+            if (job.format == ReportFormat.CSV) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                githubApiService.generateCommitCsvReport(
+                        job.projectId, job.since, job.until, GithubRateLimiter.Priority.BACKGROUND, false).writeTo(out);
+                job.csv = out.toByteArray();
+            } else {
+                job.report = githubApiService.generateCommitJsonReport(
+                        job.projectId, job.since, job.until, GithubRateLimiter.Priority.BACKGROUND, false);
+            }
+            job.status = JobStatus.COMPLETED;
+        } catch (Exception ex) {
+            log.warn("Commit report job {} failed: {}", job.jobId, ex.getMessage());
+            job.error = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+            job.status = JobStatus.FAILED;
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    // =========================================================================
+    //  Helpers
+    // =========================================================================
+
+    private ReportJob findJob(String jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Commit report job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private void evictExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(j -> j.finishedAt != null && j.finishedAt.isBefore(cutoff));
+    }
+
+    private ReportFormat parseFormat(String format) {
+        if (format == null || format.isBlank()) return ReportFormat.JSON;
+        try {
+            return ReportFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ValidationException("Unsupported report format: " + format + " (expected json or csv)");
+        }
+    }
+
+    private CommitReportJobResponse toResponse(ReportJob job) {
+        return CommitReportJobResponse.builder()
+                .jobId(job.jobId)
+                .projectId(job.projectId)
+                .since(job.since)
+                .until(job.until)
+                .format(job.format.name())
+                .status(job.status.name())
+                .submittedAt(job.submittedAt)
+                .startedAt(job.startedAt)
+                .finishedAt(job.finishedAt)
+                .error(job.error)
+                .report(job.report)
+                .build();
+    }
+
+    private static class ReportJob {
+        final String jobId;
+        final Integer projectId;
+        final String since;
+        final String until;
+        final ReportFormat format;
+        final LocalDateTime submittedAt = LocalDateTime.now();
+        volatile JobStatus status = JobStatus.QUEUED;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile String error;
+        volatile CommitReportResponse report;
+        volatile byte[] csv;
+
+        ReportJob(String jobId, Integer projectId, String since, String until, ReportFormat format) {
+            this.jobId = jobId;
+            this.projectId = projectId;
+            this.since = since;
+            this.until = until;
+            this.format = format;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.edutool.service;
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming decoder for {@code GET /repos/{owner}/{repo}/stats/contributors}.
+ *
+ * <p>Walks the JSON token by token instead of binding it to
+ * {@code List<Map<String, Object>>}: weeks outside the since/until window (or
+ * without commits) are dropped while parsing, and the remaining {@code w/a/d/c}
+ * values are read as primitives. Because GitHub emits {@code "weeks"} before
+ * {@code "author"}, the kept weeks of one contributor are buffered in reusable
+ * primitive arrays and handed to the {@link WeekSink} once the login is known.
+ */
+class ContributorStatsDecoder {
+
+    interface WeekSink {
+        void accept(String login, long weekStartEpoch, int commits, int additions, int deletions);
+    }
+
+    private final Long sinceEpoch;
+    private final Long untilEpoch;
+
+    // Per-contributor buffer, reused across contributors
+    private long[] weekStarts = new long[64];
+    private int[] commits = new int[64];
+    private int[] additions = new int[64];
+    private int[] deletions = new int[64];
+    private int size;
+
+    ContributorStatsDecoder(Long sinceEpoch, Long untilEpoch) {
+        this.sinceEpoch = sinceEpoch;
+        this.untilEpoch = untilEpoch;
+    }
+
+    /**
+     * Decodes the whole array, sending each kept week to {@code sink}.
+     *
+     * @return GitHub logins of every contributor in the response, in order
+     */
+    List<String> decode(JsonParser p, WeekSink sink) {
+        List<String> logins = new ArrayList<>();
+        if (p.nextToken() != JsonToken.START_ARRAY) return logins;
+
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            size = 0;
+            String login = null;
+            while (p.nextToken() == JsonToken.PROPERTY_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("weeks".equals(field) && value == JsonToken.START_ARRAY) {
+                    readWeeks(p);
+                } else if ("author".equals(field) && value == JsonToken.START_OBJECT) {
+                    login = readLogin(p);
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (login == null) continue;
+            logins.add(login);
+            for (int i = 0; i < size; i++) {
+                sink.accept(login, weekStarts[i], commits[i], additions[i], deletions[i]);
+            }
+        }
+        return logins;
+    }
+
+    private void readWeeks(JsonParser p) {
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            long w = 0;
+            int a = 0, d = 0, c = 0;
+            while (p.nextToken() == JsonToken.PROPERTY_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if (!value.isNumeric()) {
+                    p.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "w" -> w = p.getLongValue();
+                    case "a" -> a = p.getIntValue();
+                    case "d" -> d = p.getIntValue();
+                    case "c" -> c = p.getIntValue();
+                    default -> { }
+                }
+            }
+            if (c == 0) continue;
+            if (sinceEpoch != null && w < sinceEpoch) continue;
+            if (untilEpoch != null && w > untilEpoch) continue;
+            append(w, c, a, d);
+        }
+    }
+
+    private String readLogin(JsonParser p) {
+        String login = null;
+        while (p.nextToken() == JsonToken.PROPERTY_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            if ("login".equals(field) && value == JsonToken.VALUE_STRING) {
+                login = p.getString();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return login;
+    }
+
+    private void append(long w, int c, int a, int d) {
+        if (size == weekStarts.length) {
+            int newLength = size * 2;
+            weekStarts = Arrays.copyOf(weekStarts, newLength);
+            commits = Arrays.copyOf(commits, newLength);
+            additions = Arrays.copyOf(additions, newLength);
+            deletions = Arrays.copyOf(deletions, newLength);
+        }
+        weekStarts[size] = w;
+        commits[size] = c;
+        additions[size] = a;
+        deletions[size] = d;
+        size++;
+    }
+}
@@ -0,0 +1,266 @@
+package com.edutool.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps a bare mirror of each repository under {@code github.mirror.dir} and reads
+ * commit history from it with the {@code git} command line, so statistics need
+ * neither the REST API's quota nor its 202 "still computing" responses.
+ *
+ * <p>The remote is {@code github.mirror.remote-url} with {@code {owner}} and
+ * {@code {repo}} filled in. It may be any URL or path git can clone, such as a
+ * directory of local bare repositories. HTTPS remotes are authenticated with a token
+ * of the {@link GithubTokenPool}, passed through the environment and never on the
+ * command line.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GitMirrorClient {
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9._-]+");
+    private static final char RECORD = '\u001e';
+    private static final String FIELD = "\u001f";
+
+    private final GithubTokenPool tokenPool;
+
+    @Value("${github.mirror.dir:${java.io.tmpdir}/edutool/git-mirrors}")
+    private Path mirrorDir;
+
+    @Value("${github.mirror.remote-url:https://github.com/{owner}/{repo}.git}")
+    private String remoteUrl;
+
+    @Value("${github.mirror.git-command:git}")
+    private String gitCommand;
+
+    @Value("${github.mirror.timeout:PT10M}")
+    private Duration timeout;
+
+    // One clone/fetch at a time per mirror
+    private final Map<Path, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Clones the mirror on first use, afterwards fetches the remote's new refs.
+     *
+     * @return the mirror's directory
+     */
+    public Path update(String owner, String repo) {
+        if (!NAME.matcher(owner).matches() || !NAME.matcher(repo).matches() || owner.startsWith(".") || repo.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid repository name: " + owner + "/" + repo);
+        }
+        Path mirror = mirrorDir.resolve(owner.toLowerCase(Locale.ROOT)).resolve(repo.toLowerCase(Locale.ROOT) + ".git");
+        String url = remoteUrl.replace("{owner}", owner).replace("{repo}", repo);
+
+        synchronized (locks.computeIfAbsent(mirror, k -> new Object())) {
+            if (Files.isDirectory(mirror)) {
+                run(mirror, url, "fetch", "--prune", "--quiet", "origin");
+            } else {
+                try {
+                    Files.createDirectories(mirror.getParent());
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Cannot create mirror directory " + mirror.getParent(), ex);
+                }
+                run(mirror.getParent(), url, "clone", "--mirror", "--quiet", url, mirror.getFileName().toString());
+            }
+        }
+        return mirror;
+    }
+
+    /** Whether {@code sha} is HEAD or one of its ancestors, i.e. a usable cursor. */
+    public boolean isAncestorOfHead(Path mirror, String sha) {
+        return exitCode(mirror, "merge-base", "--is-ancestor", sha, "HEAD") == 0;
+    }
+
+    /**
+     * HEAD (the remote's default branch) with its committer date, read before the
+     * history so the log and the next cursor describe the same commit.
+     */
+    public HistoryCommit head(Path mirror) {
+        GitProcess git = start(mirror, null, "log", "-1", "--format=%H%x1f%cI", "HEAD", "--");
+        String line;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(git.process.getInputStream(), StandardCharsets.UTF_8))) {
+            line = reader.readLine();
+        } catch (IOException ex) {
+            git.process.destroyForcibly();
+            throw new IllegalStateException("Could not read HEAD of " + mirror + ": " + ex.getMessage(), ex);
+        }
+        git.finish(true);
+        if (line == null || line.isBlank()) throw new IllegalStateException("No commits in " + mirror);
+
+        String[] f = line.split(FIELD, 2);
+        HistoryCommit head = new HistoryCommit();
+        head.sha = f[0];
+        head.committedAt = OffsetDateTime.parse(f[1]).toInstant();
+        return head;
+    }
+
+    /**
+     * History up to {@code headSha}, newest first, with line counts from
+     * {@code --numstat}; binary files count as changed without lines. Merge commits
+     * are listed with their parent count (and no line counts) for the caller to skip.
+     *
+     * @param afterSha only the commits not reachable from this one, or {@code null} for the full history
+     */
+    public List<HistoryCommit> log(Path mirror, String afterSha, String headSha) {
+        GitProcess git = start(mirror, null, "log", "--numstat", "--no-renames",
+                "--format=%x1e%H%x1f%P%x1f%an%x1f%ae%x1f%aI%x1f%cI%x1f%s",
+                afterSha != null ? afterSha + ".." + headSha : headSha, "--");
+        List<HistoryCommit> commits = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(git.process.getInputStream(), StandardCharsets.UTF_8))) {
+            HistoryCommit current = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty() && line.charAt(0) == RECORD) {
+                    String[] f = line.substring(1).split(FIELD, 7);
+                    current = new HistoryCommit();
+                    current.sha = f[0];
+                    current.parents = f[1].isEmpty() ? 0 : f[1].split(" ").length;
+                    current.authorName = f[2];
+                    current.authorEmail = f[3];
+                    current.authoredAt = OffsetDateTime.parse(f[4]).toInstant();
+                    current.committedAt = OffsetDateTime.parse(f[5]).toInstant();
+                    current.message = f.length > 6 ? f[6] : "";
+                    current.changedFiles = 0;
+                    commits.add(current);
+                } else if (current != null && !line.isBlank()) {
+                    String[] f = line.split("\t", 3);
+                    current.changedFiles++;
+                    if (!"-".equals(f[0])) current.additions += Integer.parseInt(f[0]);
+                    if (!"-".equals(f[1])) current.deletions += Integer.parseInt(f[1]);
+                }
+            }
+        } catch (IOException ex) {
+            git.process.destroyForcibly();
+            throw new IllegalStateException("Could not read git log of " + mirror + ": " + ex.getMessage(), ex);
+        }
+        git.finish(true);
+        return commits;
+    }
+
+    // =========================================================================
+    //  Process handling
+    // =========================================================================
+
+    private void run(Path dir, String url, String... args) {
+        start(dir, url, args).finish(true);
+    }
+
+    private int exitCode(Path dir, String... args) {
+        GitProcess git = start(dir, null, args);
+        try {
+            git.process.getInputStream().transferTo(OutputStream.nullOutputStream());
+        } catch (IOException ex) {
+            git.process.destroyForcibly();
+        }
+        return git.finish(false);
+    }
+
+    /** Starts git in {@code dir} without a terminal prompt; stderr goes to a temp file. */
+    private GitProcess start(Path dir, String url, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(gitCommand);
+        command.addAll(List.of(args));
+        ProcessBuilder builder = new ProcessBuilder(command).directory(dir.toFile());
+        Map<String, String> env = builder.environment();
+        env.put("GIT_TERMINAL_PROMPT", "0");
+        if (url != null && url.startsWith("https://github.com/")) {
+            GithubTokenPool.Token token = tokenPool.hasTokens() ? tokenPool.best(System.currentTimeMillis()) : null;
+            if (token != null && token.value != null) {
+                String basic = Base64.getEncoder().encodeToString(
+                        ("x-access-token:" + token.value).getBytes(StandardCharsets.UTF_8));
+                env.put("GIT_CONFIG_COUNT", "1");
+                env.put("GIT_CONFIG_KEY_0", "http.extraHeader");
+                env.put("GIT_CONFIG_VALUE_0", "Authorization: Basic " + basic);
+            }
+        }
+
+        Path stderr = null;
+        try {
+            stderr = Files.createTempFile("git-", ".err");
+            builder.redirectError(stderr.toFile());
+            return new GitProcess(args[0], builder.start(), stderr);
+        } catch (IOException ex) {
+            deleteQuietly(stderr);
+            throw new IllegalStateException("Could not run " + gitCommand + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // temp file only
+        }
+    }
+
+    private class GitProcess {
+        final String subcommand;
+        final Process process;
+        final Path stderr;
+
+        GitProcess(String subcommand, Process process, Path stderr) {
+            this.subcommand = subcommand;
+            this.process = process;
+            this.stderr = stderr;
+        }
+
+        /**
+         * Waits for git to exit. With {@code check}, a non-zero exit becomes an exception
+         * worded like the REST errors ("404 …", "401 …") so reports show the same diagnostics.
+         *
+         * @return the exit code
+         */
+        int finish(boolean check) {
+            try {
+                if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                    throw new IllegalStateException("git " + subcommand + " timed out after " + timeout);
+                }
+                int exit = process.exitValue();
+                if (exit == 0 || !check) return exit;
+
+                String error = Files.readString(stderr).trim();
+                if (error.contains("not found") || error.contains("does not exist")
+                        || error.contains("does not appear to be a git repository")) {
+                    throw new IllegalStateException("404 Not Found: " + error);
+                }
+                if (error.contains("Authentication failed") || error.contains("could not read Username")) {
+                    throw new IllegalStateException("401 Unauthorized: " + error);
+                }
+                throw new IllegalStateException("git " + subcommand + " failed (exit " + exit + "): " + error);
+            } catch (IOException ex) {
+                throw new IllegalStateException("git " + subcommand + " failed: " + ex.getMessage(), ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+                throw new IllegalStateException("Interrupted while running git " + subcommand, ex);
+            } finally {
+                deleteQuietly(stderr);
+            }
+        }
+    }
+}
@@ -1,35 +1,52 @@
 package com.edutool.service;
 
 import com.edutool.dto.response.CommitReportResponse;
+import com.edutool.dto.response.CourseCommitReportResponse;
 import com.edutool.exception.ResourceNotFoundException;
 import com.edutool.exception.ValidationException;
 import com.edutool.model.CommitContribution;
+import com.edutool.model.CommitDetail;
+import com.edutool.model.Course;
 import com.edutool.model.CourseEnrollment;
 import com.edutool.model.GithubRepository;
+import com.edutool.model.Project;
 import com.edutool.model.Student;
 import com.edutool.repository.CommitContributionRepository;
+import com.edutool.repository.CommitDetailRepository;
 import com.edutool.repository.CourseEnrollmentRepository;
+import com.edutool.repository.CourseRepository;
 import com.edutool.repository.GithubRepositoryRepository;
 import com.edutool.repository.ProjectRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
-
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.IsoFields;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -39,7 +56,8 @@ import java.util.stream.Collectors;
  * <h3>Data source: /repos/{owner}/{repo}/stats/contributors</h3>
  * Returns weekly additions, deletions and commit counts per contributor — no extra
  * calls per commit needed. GitHub may respond 202 while computing stats; the service
- * retries up to 3 times with a short back-off.
+ * retries it, and 5xx / I/O failures, with the jittered exponential backoff of
+ * {@link GithubRetryPolicy} until {@code github.retry.deadline} runs out.
  *
  * <h3>Rate limits</h3>
  * Unauthenticated: 60 req/h · Authenticated: 5 000 req/h<br>
@@ -54,21 +72,76 @@ public class GithubApiService {
     private final CourseEnrollmentRepository enrollmentRepository;
     private final ProjectRepository projectRepository;
     private final CommitContributionRepository contributionRepository;
-    private final RestTemplate restTemplate;
+    private final CourseRepository courseRepository;
+    private final CommitDetailRepository commitDetailRepository;
+    private final GithubHttpClient githubHttpClient;
+    private final GithubCommitCache commitCache;
+    private final GithubGraphqlClient graphqlClient;
+    private final GitMirrorClient gitMirrorClient;
+    private final GithubRepoCircuitBreaker circuitBreaker;
+    private final GithubRetryPolicy retryPolicy;
+    private final ReportProgressTracker progressTracker;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    @Qualifier("githubFetchExecutor")
+    private final Executor githubFetchExecutor;
+
+    @Value("${github.report.freshness:PT30M}")
+    private Duration reportFreshness;
+
+    @Value("${github.sync.max-incremental-commits:300}")
+    private int maxIncrementalCommits;
+
+    // Push webhook payloads list at most this many commits; a full list may have been cut off
+    private static final int MAX_PUSH_PAYLOAD_COMMITS = 2048;
+
+    // "404 Not Found ..." at the start of a client exception message
+    private static final Pattern STATUS_PREFIX = Pattern.compile("([1-5]\\d\\d) ");
+
+    // 12345+login@users.noreply.github.com, or login@users.noreply.github.com for older accounts
+    private static final Pattern NOREPLY_EMAIL = Pattern.compile("(?:\\d+\\+)?([a-z0-9-]+)@users\\.noreply\\.github\\.com");
+
+    @Value("${github.api.base-url:https://api.github.com}")
+    private String githubApiBase;
+
+    // "rest" (stats/contributors + /commits), "graphql" (batched commit history)
+    // or "git-mirror" (history read from local bare mirrors)
+    @Value("${github.client.mode:rest}")
+    private String clientMode;
+
+    @Value("${github.graphql.repos-per-query:5}")
+    private int graphqlReposPerQuery;
+
+    @Value("${github.report.cache.incomplete-ttl:PT15S}")
+    private Duration incompleteReportTtl;
+
+    @Value("${github.report.cache.max-entries:100}")
+    private int reportCacheMaxEntries;
+
+    // (projectId, since, until) → last aggregation, least recently used first
+    private final Map<ReportKey, ProjectReport> reportCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ReportKey, ProjectReport> eldest) {
+            return size() > reportCacheMaxEntries;
+        }
+    };
 
-    @Value("${github.token:}")
-    private String githubToken;
+    // Report computations in progress, joined by identical concurrent requests
+    private final Map<FlightKey, CompletableFuture<ProjectReport>> inFlightReports = new ConcurrentHashMap<>();
 
-    private static final String GITHUB_API_BASE = "https://api.github.com";
 
     // =========================================================================
     //  Public API
     // =========================================================================
 
     /**
-     * Fetches contributor statistics from GitHub for <b>all repositories</b> of the
-     * given project, persists weekly aggregates to {@code commit_contributions}, and
-     * returns a fully populated CSV stream.
+     * Builds the commit report for <b>all repositories</b> of the given project from
+     * the weekly aggregates in {@code commit_contributions}, and returns a body that
+     * streams the CSV rows straight to the response.
+     *
+     * <p>Repositories whose stored history is older than {@code github.report.freshness}
+     * (or was never synced) are refetched from GitHub and upserted first; fresh ones
+     * cost no GitHub call at all.
      *
      * <p>The CSV has two sections:
      * <ol>
@@ -76,13 +149,73 @@ public class GithubApiService {
      *   <li><b>Weekly Detail</b> – one row per student × repo × week with commits/additions/deletions</li>
      * </ol>
      *
+     * <p>The aggregation is shared with {@link #generateCommitJsonReport}: asking for
+     * the other format of the same project and period renders the cached result.
+     *
+     * <p>All GitHub fetching happens before this method returns, so validation
+     * errors still surface as regular error responses; only rendering is deferred.
+     *
+     * <p>Not transactional: GitHub calls can take minutes, so only the persistence
+     * step runs inside a transaction and no DB connection is held while fetching.
+     *
      * @param projectId target project (group)
      * @param since     ISO date string yyyy-MM-dd, inclusive – weeks before this date are excluded (nullable)
      * @param until     ISO date string yyyy-MM-dd, inclusive – weeks after this date are excluded (nullable)
      */
-    @Transactional
-    public ByteArrayInputStream generateCommitCsvReport(
+    public StreamingResponseBody generateCommitCsvReport(
+            Integer projectId, String since, String until) {
+        return generateCommitCsvReport(projectId, since, until, GithubRateLimiter.Priority.INTERACTIVE, false);
+    }
+
+    /**
+     * @param priority scheduling class for the GitHub calls – background work yields
+     *                 to interactive requests and keeps a larger quota reserve
+     * @param refresh  refetch every repository from GitHub even if its stored data is
+     *                 still within {@code github.report.freshness}
+     */
+    public StreamingResponseBody generateCommitCsvReport(
+            Integer projectId, String since, String until,
+            GithubRateLimiter.Priority priority, boolean refresh) {
+
+        ProjectReport report = aggregateProjectReport(projectId, since, until, priority, refresh);
+        return out -> writeCsv(out, report);
+    }
+
+    /**
+     * Same logic as {@link #generateCommitCsvReport} but returns a structured
+     * {@link CommitReportResponse} JSON object — easier for frontend to consume.
+     */
+    public CommitReportResponse generateCommitJsonReport(
             Integer projectId, String since, String until) {
+        return generateCommitJsonReport(projectId, since, until, GithubRateLimiter.Priority.INTERACTIVE, false);
+    }
+
+    public CommitReportResponse generateCommitJsonReport(
+            Integer projectId, String since, String until,
+            GithubRateLimiter.Priority priority, boolean refresh) {
+
+        return buildJsonReport(aggregateProjectReport(projectId, since, until, priority, refresh));
+    }
+
+    // =========================================================================
+    //  Project report aggregation – computed once, rendered as CSV or JSON
+    // =========================================================================
+
+    /**
+     * Syncs and aggregates the project's repositories into a {@link ProjectReport},
+     * or returns the cached one for the same (projectId, since, until) when its data
+     * version still matches, so a JSON view followed by a CSV download costs one
+     * aggregation. An entry is dropped as soon as a repository of the project has to
+     * be refetched, except that a report with incomplete repositories (GitHub still
+     * computing, fetch errors) is reused for {@code github.report.cache.incomplete-ttl}.
+     *
+     * <p>Identical requests arriving while the report is being computed share that
+     * computation and its result (or exception) instead of starting their own
+     * GitHub fan-out.
+     */
+    private ProjectReport aggregateProjectReport(
+            Integer projectId, String since, String until,
+            GithubRateLimiter.Priority priority, boolean refresh) {
 
         // 1. All repos for the project (no need to pick "selected" only)
         List<GithubRepository> repos = repoRepository.findByProject_ProjectId(projectId);
@@ -98,173 +231,1102 @@ public class GithubApiService {
             throw new ValidationException("No students are enrolled in project ID: " + projectId);
         }
 
+        since = since != null && !since.isBlank() ? since : null;
+        until = until != null && !until.isBlank() ? until : null;
+        ReportKey key = new ReportKey(projectId, since, until);
+        LocalDateTime now = LocalDateTime.now();
+        if (!refresh) {
+            ProjectReport cached;
+            synchronized (reportCache) {
+                cached = reportCache.get(key);
+            }
+            if (cached != null && cached.dataVersion == dataVersion(repos, enrollments)
+                    && (staleRepositories(repos, false).isEmpty()
+                        || now.isBefore(cached.generatedAt.plus(incompleteReportTtl)))) {
+                log.debug("Serving commit report for project {} ({} – {}) from the report cache", projectId, since, until);
+                progressTracker.served(projectId, repos.size());
+                return cached;
+            }
+        }
+
+        // Single flight: concurrent requests for the same report wait for the one computing it.
+        // A plain request may also join a refresh, whose data is at least as new, and a
+        // background request an interactive one; an interactive request never waits behind
+        // background pacing and reserves.
+        CompletableFuture<ProjectReport> flight = new CompletableFuture<>();
+        FlightKey flightKey = new FlightKey(key, refresh, priority);
+        CompletableFuture<ProjectReport> running = null;
+        for (FlightKey candidate : joinableFlights(flightKey)) {
+            running = inFlightReports.get(candidate);
+            if (running != null) break;
+        }
+        if (running == null) running = inFlightReports.putIfAbsent(flightKey, flight);
+        if (running != null) {
+            log.debug("Joining in-flight commit report for project {} ({} – {})", projectId, since, until);
+            try {
+                return running.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) throw cause;
+                throw ex;
+            }
+        }
+        ReportProgressTracker.Run progress = progressTracker.begin(projectId, repos.size());
+        try {
+            ProjectReport report = computeProjectReport(key, repos, enrollments, priority, refresh, now, progress);
+            flight.complete(report);
+            progress.complete("Commit report generated");
+            return report;
+        } catch (RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            progress.fail(ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName());
+            throw ex;
+        } finally {
+            inFlightReports.remove(flightKey, flight);
+        }
+    }
+
+    /** Flights whose result can answer a request for {@code own}, best first, {@code own} last. */
+    private List<FlightKey> joinableFlights(FlightKey own) {
+        List<FlightKey> keys = new ArrayList<>();
+        for (GithubRateLimiter.Priority priority : GithubRateLimiter.Priority.values()) {
+            if (priority.compareTo(own.priority()) > 0) break; // INTERACTIVE comes first
+            keys.add(new FlightKey(own.report(), true, priority));
+            if (!own.refresh()) keys.add(new FlightKey(own.report(), false, priority));
+        }
+        return keys;
+    }
+
+    private ProjectReport computeProjectReport(
+            ReportKey key, List<GithubRepository> repos, List<CourseEnrollment> enrollments,
+            GithubRateLimiter.Priority priority, boolean refresh, LocalDateTime now,
+            ReportProgressTracker.Run progress) {
+
+        Integer projectId = key.projectId();
+        String since = key.since();
+        String until = key.until();
+
         // Map: lowercase githubUsername → StudentStats
         Map<String, StudentStats> statsByLogin = new LinkedHashMap<>();
         for (CourseEnrollment e : enrollments) {
             Student s = e.getStudent();
             if (s.getGithubUsername() != null && !s.getGithubUsername().isBlank()) {
-                String key = s.getGithubUsername().toLowerCase(Locale.ROOT);
-                statsByLogin.put(key, new StudentStats(s, e.getRoleInProject(), e.getGroupNumber()));
+                String login = s.getGithubUsername().toLowerCase(Locale.ROOT);
+                statsByLogin.put(login, new StudentStats(s, e.getRoleInProject(), e.getGroupNumber()));
             }
         }
 
         // Convert since/until to epoch seconds for week filtering
-        Long sinceEpoch = since != null && !since.isBlank()
+        Long sinceEpoch = since != null
                 ? LocalDate.parse(since).atStartOfDay(ZoneOffset.UTC).toEpochSecond() : null;
-        Long untilEpoch = until != null && !until.isBlank()
+        Long untilEpoch = until != null
                 ? LocalDate.parse(until).atTime(23, 59, 59).toInstant(ZoneOffset.UTC).getEpochSecond() : null;
 
-        // 3. For EACH repo: try stats/contributors (has additions/deletions) then fall back to /commits
-        boolean hasToken = githubToken != null && !githubToken.isBlank();
-        Map<Integer, String> repoDiagnostic = new LinkedHashMap<>();
+        // 3. Refetch stale repos from GitHub, then load the window from commit_contributions
+        List<RepoFetchResult> fetched = syncStaleRepositories(
+                repos, statsByLogin, sinceEpoch, untilEpoch, priority, refresh, progress);
+        if (!fetched.isEmpty()) {
+            // Re-read the sync stamps before loading, so the version never claims newer data than was read
+            repos = repoRepository.findByProject_ProjectId(projectId);
+        }
+        long dataVersion = dataVersion(repos, enrollments);
+        loadWeeklyContributions(repos, statsByLogin, since, until);
+
+        ProjectReport report = new ProjectReport(
+                projectId, since, until, repos, statsByLogin, githubHttpClient.hasToken(), dataVersion, now);
+        for (RepoFetchResult result : fetched) {
+            report.repoStatus.put(result.repo.getRepoId(), new RepoStatus(result));
+        }
+        synchronized (reportCache) {
+            reportCache.put(key, report);
+        }
+        return report;
+    }
+
+    /**
+     * Changes whenever anything a project report is built from changes: a repository
+     * sync or webhook push (sync stamp, cursor), a repository being marked for resync,
+     * or the group's roster.
+     */
+    private long dataVersion(List<GithubRepository> repos, List<CourseEnrollment> enrollments) {
+        long version = 1;
+        for (GithubRepository r : repos) {
+            version = 31 * version + Objects.hash(
+                    r.getRepoId(), r.getOwner(), r.getRepoName(), r.getLastSyncedAt(), r.getLastCommitSha());
+        }
+        for (CourseEnrollment e : enrollments) {
+            version = 31 * version + Objects.hash(e.getStudent().getStudentId(), e.getStudent().getGithubUsername(),
+                    e.getRoleInProject(), e.getGroupNumber());
+        }
+        return version;
+    }
+
+    // =========================================================================
+    //  Course-wide reports
+    // =========================================================================
+
+    /**
+     * Commit report over every group (project) of a course in a single call.
+     *
+     * <p>All repositories of the course go through one {@link #syncStaleRepositories}
+     * pass, so they share the {@code githubFetchExecutor} pool and the
+     * {@link GithubRateLimiter} quota instead of one report call per group. The CSV has
+     * a repository status section, one row per group and one row per student.
+     */
+    public StreamingResponseBody generateCourseCommitCsvReport(
+            Integer courseId, String since, String until,
+            GithubRateLimiter.Priority priority, boolean refresh) {
+
+        CourseReport report = collectCourseReport(courseId, since, until, priority, refresh);
+        return out -> writeCourseCsv(out, report);
+    }
+
+    /** Same data as {@link #generateCourseCommitCsvReport} as a structured JSON object. */
+    public CourseCommitReportResponse generateCourseCommitJsonReport(
+            Integer courseId, String since, String until,
+            GithubRateLimiter.Priority priority, boolean refresh) {
+
+        CourseReport report = collectCourseReport(courseId, since, until, priority, refresh);
+        return buildCourseJsonReport(report);
+    }
+
+    private CourseReport collectCourseReport(
+            Integer courseId, String since, String until,
+            GithubRateLimiter.Priority priority, boolean refresh) {
+
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Course not found with ID: " + courseId));
+
+        List<GithubRepository> repos = repoRepository.findByCourseId(courseId).stream()
+                .filter(r -> r.getProject().getDeletedAt() == null)
+                .sorted(Comparator.comparing(GithubRepository::getRepoId))
+                .collect(Collectors.toList());
+        if (repos.isEmpty()) {
+            throw new ValidationException(
+                    "No repositories found for course ID: " + courseId
+                            + ". Groups must submit at least one GitHub repository first.");
+        }
+
+        // Students currently assigned to a group of the course
+        List<CourseEnrollment> enrollments = enrollmentRepository.findByCourse_CourseId(courseId).stream()
+                .filter(e -> e.getProject() != null && e.getProject().getDeletedAt() == null
+                        && e.getRemovedFromProjectAt() == null)
+                .collect(Collectors.toList());
+        if (enrollments.isEmpty()) {
+            throw new ValidationException("No students are assigned to a group in course ID: " + courseId);
+        }
+
+        since = since != null && !since.isBlank() ? since : null;
+        until = until != null && !until.isBlank() ? until : null;
+        CourseReport report = new CourseReport(course, since, until, repos, githubHttpClient.hasToken());
+        for (CourseEnrollment e : enrollments) {
+            GroupStats group = report.groups.computeIfAbsent(
+                    e.getProject().getProjectId(), k -> new GroupStats(e.getProject()));
+            group.memberCount++;
+            if (group.groupNumber == null) group.groupNumber = e.getGroupNumber();
 
+            Student s = e.getStudent();
+            if (s.getGithubUsername() != null && !s.getGithubUsername().isBlank()) {
+                StudentStats stats = new StudentStats(s, e.getRoleInProject(), e.getGroupNumber());
+                report.statsByLogin.put(s.getGithubUsername().toLowerCase(Locale.ROOT), stats);
+                group.members.add(stats);
+            }
+        }
         for (GithubRepository repo : repos) {
-            List<Map<String, Object>> contributors = Collections.emptyList();
-            String diagnostic;
+            report.groups.computeIfAbsent(repo.getProject().getProjectId(), k -> new GroupStats(repo.getProject()))
+                    .repositories.add(repo.getOwner() + "/" + repo.getRepoName());
+        }
+
+        Long sinceEpoch = since != null
+                ? LocalDate.parse(since).atStartOfDay(ZoneOffset.UTC).toEpochSecond() : null;
+        Long untilEpoch = until != null
+                ? LocalDate.parse(until).atTime(23, 59, 59).toInstant(ZoneOffset.UTC).getEpochSecond() : null;
+
+        List<RepoFetchResult> fetched = syncStaleRepositories(
+                repos, report.statsByLogin, sinceEpoch, untilEpoch, priority, refresh, ReportProgressTracker.Run.NONE);
+        loadWeeklyContributions(repos, report.statsByLogin, since, until);
+
+        for (RepoFetchResult result : fetched) {
+            String status;
+            if (result.errorMessage != null) {
+                status = "ERROR: " + result.errorMessage + (result.skippedUntil == null ? "" : " (lỗi đã ghi nhớ — bỏ qua đến "
+                        + result.skippedUntil.format(DateTimeFormatter.ofPattern("HH:mm")) + ")");
+            } else if (result.incremental) {
+                status = "GitHub — +" + result.newCommits + " commit mới";
+            } else if (!result.viaCommitsApi) {
+                status = "GitHub — " + result.logins.size() + " contributors";
+            } else if (result.logins.isEmpty()) {
+                status = report.hasToken ? "still computing — gọi lại sau 30s" : "chưa set GITHUB_TOKEN";
+            } else {
+                status = "via /commits API — additions/deletions=0";
+            }
+            report.repoStatus.put(result.repo.getRepoId(), status);
+        }
+        for (GithubRepository repo : repos) {
+            report.repoStatus.computeIfAbsent(repo.getRepoId(), id -> "từ DB — đồng bộ lúc "
+                    + repo.getLastSyncedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        }
+        return report;
+    }
+
+    // =========================================================================
+    //  Background sync
+    // =========================================================================
+
+    /**
+     * Sends a single stats/contributors request so GitHub starts computing the
+     * statistics; the expected 202 is not waited out here.
+     */
+    public void warmContributorStats(GithubRepository repo) {
+        String url = githubApiBase + "/repos/" + repo.getOwner() + "/" + repo.getRepoName() + "/stats/contributors";
+        try {
+            GithubHttpClient.GithubResponse response = githubHttpClient.get(url, GithubRateLimiter.Priority.BACKGROUND);
+            log.debug("Warmed contributor stats for {}/{} (HTTP {})", repo.getOwner(), repo.getRepoName(), response.status);
+        } catch (Exception ex) {
+            log.debug("Could not warm contributor stats for {}/{}: {}", repo.getOwner(), repo.getRepoName(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Refetches the stale repositories of a project and stores their weekly
+     * aggregates in {@code commit_contributions}, without building a report.
+     *
+     * @return number of repositories whose full history was stored
+     */
+    public int syncProjectRepositories(Integer projectId, GithubRateLimiter.Priority priority) {
+        List<GithubRepository> repos = repoRepository.findByProject_ProjectId(projectId);
 
-            // --- Primary: /stats/contributors (has additions + deletions, but may need 202 retries) ---
+        Map<String, StudentStats> statsByLogin = new LinkedHashMap<>();
+        for (CourseEnrollment e : enrollmentRepository.findByProject_ProjectId(projectId)) {
+            Student s = e.getStudent();
+            if (s.getGithubUsername() != null && !s.getGithubUsername().isBlank()) {
+                String key = s.getGithubUsername().toLowerCase(Locale.ROOT);
+                statsByLogin.put(key, new StudentStats(s, e.getRoleInProject(), e.getGroupNumber()));
+            }
+        }
+        if (repos.isEmpty() || statsByLogin.isEmpty()) return 0;
+
+        List<RepoFetchResult> results = syncStaleRepositories(
+                repos, statsByLogin, null, null, priority, false, ReportProgressTracker.Run.NONE);
+        return (int) results.stream().filter(r -> r.errorMessage == null && !r.viaCommitsApi).count();
+    }
+
+    // =========================================================================
+    //  Push webhook
+    // =========================================================================
+
+    /**
+     * Folds the commits of a push to the default branch into the stored weeks and
+     * {@code commit_details}, as an incremental sync would, but without listing
+     * commits: the payload already says which commits are new.
+     *
+     * <p>Only applies when the push continues exactly from the repository's cursor
+     * ({@code before} equals {@code lastCommitSha}); the cursor is then moved to
+     * {@code after} with the same compare-and-set as {@link #foldIncrementalSync}, so
+     * a concurrent sync and a redelivered webhook cannot count a commit twice. In every
+     * other case (no cursor yet, a gap, a force push, a payload that may have been
+     * truncated at GitHub's {@value #MAX_PUSH_PAYLOAD_COMMITS} commits, or more commits than
+     * {@code github.sync.max-incremental-commits}, for which a full resync is cheaper)
+     * the repository is only marked stale. Line counts and parents come from the
+     * single-commit endpoint; when it cannot be reached the push is not guessed at
+     * (a commit may be a merge) and the repository is marked stale as well.
+     *
+     * @return short description of what was done, for logs and the webhook response
+     */
+    @SuppressWarnings("unchecked")
+    public String applyPushEvent(
+            GithubRepository repo, String before, String after, List<Map<String, Object>> commits) {
+
+        String label = repo.getOwner() + "/" + repo.getRepoName();
+        if (after.equals(repo.getLastCommitSha())) {
+            return label + ": already applied"; // redelivery, or a sync got there first
+        }
+        if (repo.getLastCommitSha() == null || !repo.getLastCommitSha().equals(before)
+                || commits.isEmpty() || commits.size() >= MAX_PUSH_PAYLOAD_COMMITS
+                || commits.size() > maxIncrementalCommits) {
+            markStale(repo);
+            return label + ": marked for resync";
+        }
+
+        Map<String, StudentStats> statsByLogin = new LinkedHashMap<>();
+        for (CourseEnrollment e : enrollmentRepository.findByProject_ProjectId(repo.getProject().getProjectId())) {
+            Student s = e.getStudent();
+            if (s.getGithubUsername() != null && !s.getGithubUsername().isBlank()) {
+                String key = s.getGithubUsername().toLowerCase(Locale.ROOT);
+                statsByLogin.put(key, new StudentStats(s, e.getRoleInProject(), e.getGroupNumber()));
+            }
+        }
+
+        RepoFetchResult result = new RepoFetchResult(repo, statsByLogin);
+        result.incremental = true;
+        result.newCommits = commits.size();
+        result.cursorSha = after;
+        result.cursorAt = repo.getLastCommitAt();
+        for (Map<String, Object> commit : commits) {
+            Instant committedAt = OffsetDateTime.parse((String) commit.get("timestamp")).toInstant();
+            if (after.equals(commit.get("id"))) {
+                result.cursorAt = LocalDateTime.ofInstant(committedAt, ZoneOffset.UTC);
+            }
+
+            Map<String, Object> author = (Map<String, Object>) commit.get("author");
+            String login = author != null ? (String) author.get("username") : null;
+            StudentStats stats = login != null ? statsByLogin.get(login.toLowerCase(Locale.ROOT)) : null;
+            if (stats == null) continue; // not a registered student
+
+            String sha = (String) commit.get("id");
+            GithubCommitCache.CommitStats lineStats;
             try {
-                contributors = fetchContributorStats(repo.getOwner(), repo.getRepoName());
+                lineStats = commitStats(repo, sha, GithubRateLimiter.Priority.BACKGROUND);
             } catch (Exception ex) {
-                String msg = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
-                log.warn("stats/contributors failed for {}/{}: {}", repo.getOwner(), repo.getRepoName(), msg);
-                if (msg.contains("404")) {
-                    diagnostic = "(ERROR 404: repo không tìm thấy hoặc là private — "
-                            + (hasToken ? "kiểm tra quyền của token" : "chưa set GITHUB_TOKEN env variable") + ")";
-                } else if (msg.contains("401") || msg.contains("403")) {
-                    diagnostic = "(ERROR " + (msg.contains("401") ? "401" : "403") + ": token không hợp lệ hay hết hạn — kiểm tra GITHUB_TOKEN)";
-                } else {
-                    diagnostic = "(ERROR: " + msg + ")";
-                }
-                repoDiagnostic.put(repo.getRepoId(), diagnostic);
-                // Skip fallback — error is auth/access, not a compute issue
+                log.info("No line counts for pushed commit {} of {}, leaving it to a resync: {}", sha, label, ex.getMessage());
+                markStale(repo);
+                return label + ": marked for resync";
+            }
+            if (lineStats.parents > 1) continue; // merges are not counted, as in stats/contributors
+            int additions = lineStats.additions;
+            int deletions = lineStats.deletions;
+
+            long weekIndex = WeekBuckets.githubWeekIndexOf(committedAt.getEpochSecond());
+            stats.weeksOf(repo.getRepoId()).add(weekIndex, 1, additions, deletions);
+            int yearWeek = WeekBuckets.yearWeekOf(weekIndex);
+
+            CommitContribution week = new CommitContribution();
+            week.setStudent(stats.student);
+            week.setRepository(repo);
+            week.setYear(yearWeek / 100);
+            week.setWeekNumber(yearWeek % 100);
+
+            CommitDetail d = new CommitDetail();
+            d.setContribution(week);
+            d.setCommitHash(sha);
+            d.setCommitMessage((String) commit.get("message"));
+            d.setCommittedAt(LocalDateTime.ofInstant(committedAt, ZoneId.systemDefault()));
+            d.setCommitUrl((String) commit.get("url"));
+            d.setFilesChanged(lineStats.filesChanged);
+            d.setAdditions(additions);
+            d.setDeletions(deletions);
+            result.commitDetails.add(d);
+        }
+
+        foldIncrementalSync(result, statsByLogin, LocalDateTime.now());
+        return after.equals(repo.getLastCommitSha())
+                ? label + ": +" + commits.size() + " commits"
+                : label + ": cursor moved concurrently, skipped";
+    }
+
+    /** Leaves the repository to the next report or scheduled sync, which refetches it. */
+    public void markStale(GithubRepository repo) {
+        transactionTemplate.executeWithoutResult(tx -> repoRepository.markStale(repo.getRepoId()));
+    }
+
+    // =========================================================================
+    //  Freshness – refetch stale repos, read the report window from the DB
+    // =========================================================================
+
+    /**
+     * Refetches the repositories whose stored history is stale (all of them when
+     * {@code refresh}) and stores their weekly aggregates.
+     *
+     * <p>A repository with a sync cursor is synced incrementally: only the commits
+     * after the cursor are fetched and added onto the stored weeks. Otherwise (or with
+     * {@code refresh}) its full history is read from stats/contributors and overwrites
+     * the stored weeks, and a new cursor is taken. A repository is stamped
+     * {@code lastSyncedAt} only when it was synced completely; the windowed /commits
+     * fallback and failed fetches stay stale.
+     *
+     * <p>Failures feed the {@link GithubRepoCircuitBreaker}; a repository whose breaker
+     * is open is skipped and reported with the remembered error.
+     *
+     * @param progress receives the state of every repository of {@code repos}, fresh ones included
+     * @return fetch results of the refetched repositories; repos served from the DB are absent
+     */
+    private List<RepoFetchResult> syncStaleRepositories(
+            List<GithubRepository> repos,
+            Map<String, StudentStats> statsByLogin,
+            Long sinceEpoch, Long untilEpoch,
+            GithubRateLimiter.Priority priority,
+            boolean refresh,
+            ReportProgressTracker.Run progress) {
+
+        List<GithubRepository> stale = staleRepositories(repos, refresh);
+        for (GithubRepository repo : repos) {
+            if (!stale.contains(repo)) progress.done(repo, "Up to date, read from the database", null);
+        }
+        if (stale.isEmpty()) return Collections.emptyList();
+
+        // Repositories with an open circuit are not called; refresh=true tries them anyway
+        List<RepoFetchResult> skipped = new ArrayList<>();
+        List<GithubRepository> callable = new ArrayList<>();
+        for (GithubRepository repo : stale) {
+            GithubRepoCircuitBreaker.Open open = refresh ? null : circuitBreaker.check(repo.getOwner(), repo.getRepoName());
+            if (open == null) {
+                callable.add(repo);
                 continue;
             }
+            RepoFetchResult result = new RepoFetchResult(repo, Collections.emptyMap());
+            result.errorMessage = open.reason;
+            result.skippedUntil = open.until;
+            skipped.add(result);
+            progress.error(repo, open.reason + " (skipped until " + open.until.format(DateTimeFormatter.ofPattern("HH:mm")) + ")");
+        }
+        callable.forEach(progress::queued);
+
+        Map<String, StudentStats> fetchedStats = copyWithoutStats(statsByLogin);
+        List<RepoFetchResult> results = new ArrayList<>(fetchAllRepositories(
+                callable, fetchedStats, sinceEpoch, untilEpoch, priority, !refresh, progress));
+        for (RepoFetchResult result : results) {
+            if (result.errorMessage == null) {
+                circuitBreaker.recordSuccess(result.repo.getOwner(), result.repo.getRepoName());
+            } else {
+                circuitBreaker.recordFailure(result.repo.getOwner(), result.repo.getRepoName(),
+                        result.errorStatus, result.errorMessage);
+            }
+        }
 
-            if (!contributors.isEmpty()) {
-                // Success via stats/contributors
-                List<String> rawLogins = new ArrayList<>();
-                for (Map<String, Object> c : contributors) {
-                    String login = extractLogin(c);
-                    if (login != null) rawLogins.add(login);
+        LocalDateTime syncedAt = LocalDateTime.now();
+        // Full histories replace the repo's stored weeks; the windowed /commits fallback only overwrites its weeks
+        List<GithubRepository> windowed = new ArrayList<>();
+        List<RepoFetchResult> synced = new ArrayList<>();
+        for (RepoFetchResult result : results) {
+            if (result.incremental || result.errorMessage != null) continue;
+            if (result.viaCommitsApi) windowed.add(result.repo); else synced.add(result);
+        }
+        List<GithubRepository> replaced = synced.stream().map(r -> r.repo).collect(Collectors.toList());
+        List<CommitDetail> commitDetails = results.stream()
+                .filter(r -> !r.incremental)
+                .flatMap(r -> r.commitDetails.stream())
+                .collect(Collectors.toList());
+        transactionTemplate.executeWithoutResult(tx -> {
+            contributionRepository.replaceAll(
+                    replaced.stream().map(GithubRepository::getRepoId).collect(Collectors.toList()),
+                    toContributionRows(replaced, fetchedStats));
+            contributionRepository.upsertAll(toContributionRows(windowed, fetchedStats));
+            commitDetailRepository.insertAll(commitDetails);
+            if (synced.isEmpty()) return;
+            repoRepository.markSynced(
+                    synced.stream().map(r -> r.repo.getRepoId()).collect(Collectors.toList()), syncedAt);
+            for (RepoFetchResult result : synced) {
+                repoRepository.updateSyncCursor(result.repo.getRepoId(), result.cursorSha, result.cursorAt, null);
+            }
+        });
+        for (RepoFetchResult result : synced) {
+            result.repo.setLastSyncedAt(syncedAt);
+            result.repo.setLastCommitSha(result.cursorSha);
+            result.repo.setLastCommitAt(result.cursorAt);
+            result.repo.setCommitsEtag(null);
+        }
+
+        for (RepoFetchResult result : results) {
+            if (result.incremental && result.errorMessage == null) {
+                foldIncrementalSync(result, fetchedStats, syncedAt);
+            }
+        }
+        results.addAll(skipped);
+        return results;
+    }
+
+    /** Repositories never synced or synced longer ago than {@code github.report.freshness}; all with {@code refresh}. */
+    private List<GithubRepository> staleRepositories(List<GithubRepository> repos, boolean refresh) {
+        LocalDateTime freshAfter = LocalDateTime.now().minus(reportFreshness);
+        return repos.stream()
+                .filter(r -> refresh || r.getLastSyncedAt() == null || r.getLastSyncedAt().isBefore(freshAfter))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Adds the commits of an incremental sync onto the stored weeks and advances the
+     * cursor in one transaction. Nothing is written when another sync advanced the
+     * cursor in the meantime, since it has folded the same commits already.
+     */
+    private void foldIncrementalSync(
+            RepoFetchResult result, Map<String, StudentStats> fetchedStats, LocalDateTime syncedAt) {
+
+        GithubRepository repo = result.repo;
+        Boolean advanced = transactionTemplate.execute(tx -> {
+            int updated = repoRepository.advanceSyncCursor(repo.getRepoId(), repo.getLastCommitSha(),
+                    result.cursorSha, result.cursorAt, result.cursorEtag, syncedAt);
+            if (updated == 0) return false;
+            contributionRepository.addAll(toContributionRows(List.of(repo), fetchedStats));
+            commitDetailRepository.insertAll(result.commitDetails);
+            return true;
+        });
+        if (Boolean.TRUE.equals(advanced)) {
+            repo.setLastSyncedAt(syncedAt);
+            repo.setLastCommitSha(result.cursorSha);
+            repo.setLastCommitAt(result.cursorAt);
+            repo.setCommitsEtag(result.cursorEtag);
+        } else {
+            log.info("Sync cursor of {}/{} moved concurrently, skipping {} new commits",
+                    repo.getOwner(), repo.getRepoName(), result.newCommits);
+        }
+    }
+
+    /**
+     * Fills {@code statsByLogin} with the stored weekly rows of {@code repos} that fall
+     * in the report window. Filtering and projection happen in the database; a week
+     * is included when its Sunday lies within [since, until], matching the week
+     * start GitHub reports for stats/contributors.
+     */
+    private void loadWeeklyContributions(
+            List<GithubRepository> repos,
+            Map<String, StudentStats> statsByLogin,
+            String since, String until) {
+
+        int fromYearWeek = 0;
+        int toYearWeek = 999_999;
+        if (since != null && !since.isBlank()) {
+            fromYearWeek = WeekBuckets.yearWeekOf(WeekBuckets.weekIndexOf(LocalDate.parse(since)));
+        }
+        if (until != null && !until.isBlank()) {
+            LocalDate untilDate = LocalDate.parse(until);
+            long untilWeek = WeekBuckets.weekIndexOf(untilDate);
+            // the week containing 'until' only counts once its Sunday is reached
+            if (untilDate.getDayOfWeek() != DayOfWeek.SUNDAY) untilWeek--;
+            toYearWeek = WeekBuckets.yearWeekOf(untilWeek);
+        }
+
+        Map<Integer, StudentStats> statsByStudentId = new HashMap<>();
+        statsByLogin.values().forEach(s -> statsByStudentId.put(s.student.getStudentId(), s));
+
+        List<Integer> repoIds = repos.stream().map(GithubRepository::getRepoId).collect(Collectors.toList());
+        for (CommitContributionRepository.WeeklyContributionView row
+                : contributionRepository.findWeeklyByRepoIds(repoIds, fromYearWeek, toYearWeek)) {
+            StudentStats stats = statsByStudentId.get(row.getStudentId());
+            if (stats == null) continue; // no longer enrolled, or GitHub username changed
+
+            int commits = row.getTotalCommits();
+            int additions = row.getAdditions() != null ? row.getAdditions() : 0;
+            int deletions = row.getDeletions() != null ? row.getDeletions() : 0;
+            stats.weeksOf(row.getRepoId()).add(
+                    WeekBuckets.weekIndexOf(row.getYear(), row.getWeekNumber()), commits, additions, deletions);
+            stats.totalCommits   += commits;
+            stats.totalAdditions += additions;
+            stats.totalDeletions += deletions;
+        }
+    }
+
+    // =========================================================================
+    //  Concurrent per-repository fetching
+    // =========================================================================
+
+    /**
+     * Fetches every repository on {@code githubFetchExecutor} at the same time.
+     * Each repo accumulates into its own copy of the student map, so no state is
+     * shared between workers; the copies are merged into {@code statsByLogin} in
+     * repository order once all fetches have finished.
+     *
+     * @param allowIncremental sync repositories that have a cursor incrementally
+     * @return one result per repository, in the same order as {@code repos}
+     */
+    private List<RepoFetchResult> fetchAllRepositories(
+            List<GithubRepository> repos,
+            Map<String, StudentStats> statsByLogin,
+            Long sinceEpoch, Long untilEpoch,
+            GithubRateLimiter.Priority priority,
+            boolean allowIncremental,
+            ReportProgressTracker.Run progress) {
+
+        if ("graphql".equalsIgnoreCase(clientMode) && githubHttpClient.hasToken()) {
+            return fetchAllRepositoriesGraphql(repos, statsByLogin, priority, allowIncremental, progress);
+        }
+
+        boolean mirror = "git-mirror".equalsIgnoreCase(clientMode);
+        List<CompletableFuture<RepoFetchResult>> futures = new ArrayList<>();
+        for (GithubRepository repo : repos) {
+            Map<String, StudentStats> isolated = copyWithoutStats(statsByLogin);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                progress.fetching(repo);
+                RepoFetchResult result = mirror
+                        ? fetchRepositoryFromMirror(repo, isolated, allowIncremental)
+                        : fetchRepository(repo, isolated, sinceEpoch, untilEpoch, priority, allowIncremental, progress);
+                reportFetched(progress, result);
+                return result;
+            }, githubFetchExecutor));
+        }
+
+        List<RepoFetchResult> results = new ArrayList<>();
+        for (CompletableFuture<RepoFetchResult> future : futures) {
+            RepoFetchResult result = future.join();
+            result.statsByLogin.forEach((login, repoStats) -> statsByLogin.get(login).merge(repoStats));
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Fetches a single repository: only the commits after its cursor when it has one,
+     * otherwise stats/contributors (has additions + deletions, but may need 202
+     * retries), then the /commits API when GitHub is still computing.
+     */
+    private RepoFetchResult fetchRepository(
+            GithubRepository repo,
+            Map<String, StudentStats> statsByLogin,
+            Long sinceEpoch, Long untilEpoch,
+            GithubRateLimiter.Priority priority,
+            boolean allowIncremental,
+            ReportProgressTracker.Run progress) {
+
+        if (allowIncremental && repo.getLastCommitSha() != null && repo.getLastCommitAt() != null) {
+            RepoFetchResult incremental = fetchNewCommits(repo, statsByLogin, priority);
+            if (incremental != null) return incremental;
+        }
+
+        RepoFetchResult result = new RepoFetchResult(repo, statsByLogin);
+        byte[] contributors;
+        try {
+            contributors = fetchContributorStats(
+                    repo.getOwner(), repo.getRepoName(), priority, retry -> progress.computing(repo, retry));
+        } catch (Exception ex) {
+            String msg = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+            log.warn("stats/contributors failed for {}/{}: {}", repo.getOwner(), repo.getRepoName(), msg);
+            // Skip fallback — error is auth/access, not a compute issue
+            result.errorMessage = msg;
+            result.errorStatus = statusOf(ex);
+            return result;
+        }
+
+        if (contributors != null) {
+            // Keep the full history: it is stored and the report window is applied when reading it back
+            List<String> rawLogins = accumulateContributorStats(contributors, statsByLogin, repo, null, null);
+            for (String login : rawLogins) {
+                if (!statsByLogin.containsKey(login.toLowerCase(Locale.ROOT))) {
+                    log.warn("GitHub contributor '{}' in {}/{} does not match any registered student username",
+                            login, repo.getOwner(), repo.getRepoName());
                 }
-                for (String login : rawLogins) {
-                    if (!statsByLogin.containsKey(login.toLowerCase(Locale.ROOT))) {
-                        log.warn("GitHub contributor '{}' in {}/{} does not match any registered student username",
-                                login, repo.getOwner(), repo.getRepoName());
+            }
+            result.logins = rawLogins;
+            readHeadCursor(repo, result, priority);
+        } else {
+            // 202 timeout: fallback to /commits API (immediate, no 202 issue, but no additions/deletions)
+            log.info("stats/contributors still computing for {}/{} — falling back to /commits API", repo.getOwner(), repo.getRepoName());
+            result.viaCommitsApi = true;
+            result.logins = accumulateFromCommitsApi(
+                    repo, statsByLogin, sinceEpoch, untilEpoch, priority, result.commitDetails);
+        }
+        return result;
+    }
+
+    /** Publishes the outcome of one repository fetch as a DONE or ERROR progress event. */
+    private void reportFetched(ReportProgressTracker.Run progress, RepoFetchResult result) {
+        if (result.errorMessage != null) {
+            progress.error(result.repo, result.errorMessage);
+            return;
+        }
+        int commits = result.statsByLogin.values().stream().mapToInt(s -> s.totalCommits).sum();
+        String message = result.incremental ? result.newCommits + " new commits"
+                : result.viaCommitsApi ? "Statistics still computing on GitHub, commits read without line counts"
+                : "Full history fetched";
+        progress.done(result.repo, message, commits);
+    }
+
+    private Map<String, StudentStats> copyWithoutStats(Map<String, StudentStats> statsByLogin) {
+        Map<String, StudentStats> copy = new LinkedHashMap<>();
+        statsByLogin.forEach((login, s) -> copy.put(login, new StudentStats(s.student, s.roleInProject, s.groupNumber)));
+        return copy;
+    }
+
+    // =========================================================================
+    //  GitHub GraphQL – batched commit history
+    // =========================================================================
+
+    /**
+     * {@code github.client.mode=graphql}: reads the commit history of
+     * {@code github.graphql.repos-per-query} repositories per GraphQL call, one batch
+     * per {@code githubFetchExecutor} task. Repositories with a cursor only read the
+     * commits after it; the others read their full history, which replaces the stored
+     * weeks like a stats/contributors fetch. Results are merged into
+     * {@code statsByLogin} exactly as in REST mode. GraphQL needs a token, so without
+     * one the REST path is used.
+     */
+    private List<RepoFetchResult> fetchAllRepositoriesGraphql(
+            List<GithubRepository> repos,
+            Map<String, StudentStats> statsByLogin,
+            GithubRateLimiter.Priority priority,
+            boolean allowIncremental,
+            ReportProgressTracker.Run progress) {
+
+        List<RepoFetchResult> results = new ArrayList<>();
+        for (GithubRepository repo : repos) {
+            results.add(new RepoFetchResult(repo, copyWithoutStats(statsByLogin)));
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int from = 0; from < results.size(); from += graphqlReposPerQuery) {
+            List<RepoFetchResult> batch = results.subList(from, Math.min(from + graphqlReposPerQuery, results.size()));
+            futures.add(CompletableFuture.runAsync(() -> {
+                batch.forEach(r -> progress.fetching(r.repo));
+                fetchHistoryBatch(batch, priority, allowIncremental);
+                batch.forEach(r -> reportFetched(progress, r));
+            }, githubFetchExecutor));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        for (RepoFetchResult result : results) {
+            result.statsByLogin.forEach((login, repoStats) -> statsByLogin.get(login).merge(repoStats));
+        }
+        return results;
+    }
+
+    private void fetchHistoryBatch(
+            List<RepoFetchResult> batch, GithubRateLimiter.Priority priority, boolean allowIncremental) {
+
+        List<GithubGraphqlClient.HistoryRequest> requests = new ArrayList<>();
+        for (RepoFetchResult result : batch) {
+            GithubRepository repo = result.repo;
+            boolean incremental = allowIncremental && repo.getLastCommitSha() != null && repo.getLastCommitAt() != null;
+            requests.add(new GithubGraphqlClient.HistoryRequest(repo.getOwner(), repo.getRepoName(),
+                    incremental ? repo.getLastCommitAt().minusSeconds(1).toInstant(ZoneOffset.UTC) : null,
+                    incremental ? repo.getLastCommitSha() : null));
+        }
+
+        List<GithubGraphqlClient.History> histories;
+        try {
+            histories = graphqlClient.fetchHistories(requests, priority);
+        } catch (Exception ex) {
+            String msg = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+            log.warn("GraphQL history query failed for {} repositories: {}", batch.size(), msg);
+            batch.forEach(r -> {
+                r.errorMessage = msg;
+                r.errorStatus = statusOf(ex);
+            });
+            return;
+        }
+
+        List<RepoFetchResult> resync = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            RepoFetchResult result = batch.get(i);
+            GithubGraphqlClient.History history = histories.get(i);
+            boolean incremental = requests.get(i).stopAtSha != null;
+            if (history.error != null) {
+                log.warn("GraphQL history failed for {}: {}", requests.get(i).label(), history.error);
+                result.errorMessage = history.error;
+                result.errorStatus = statusOf(new IllegalStateException(history.error));
+            } else if (incremental && !history.reachedStop) {
+                log.info("Sync cursor {} no longer in the history of {}, resyncing fully",
+                        result.repo.getLastCommitSha(), requests.get(i).label());
+                resync.add(result);
+            } else if (incremental && history.commits.stream().anyMatch(c -> c.parents > 1)) {
+                // 'since' filters on committer date and misses older commits of the merged branch
+                log.info("Merge commit in the new history of {}, resyncing fully", requests.get(i).label());
+                resync.add(result);
+            } else {
+                applyHistory(result, history.commits, incremental);
+            }
+        }
+        if (!resync.isEmpty()) {
+            fetchHistoryBatch(resync, priority, false);
+        }
+    }
+
+    /** Folds a GraphQL or git-mirror history (newest first) into the result's isolated student map. */
+    private void applyHistory(
+            RepoFetchResult result, List<HistoryCommit> commits, boolean incremental) {
+
+        GithubRepository repo = result.repo;
+        result.incremental = incremental;
+        result.newCommits = commits.size();
+        if (!commits.isEmpty()) {
+            result.cursorSha = commits.get(0).sha;
+            result.cursorAt = LocalDateTime.ofInstant(commits.get(0).committedAt, ZoneOffset.UTC);
+        } else if (incremental) {
+            result.cursorSha = repo.getLastCommitSha();
+            result.cursorAt = repo.getLastCommitAt();
+        }
+
+        Map<String, String> loginByEmail = new HashMap<>();
+        result.statsByLogin.forEach((login, s) -> {
+            if (s.student.getUser() != null && s.student.getUser().getEmail() != null) {
+                loginByEmail.put(s.student.getUser().getEmail().toLowerCase(Locale.ROOT), login);
+            }
+        });
+
+        Set<String> logins = new LinkedHashSet<>();
+        for (HistoryCommit commit : commits) {
+            if (commit.parents > 1) continue; // merges only move the cursor, as stats/contributors skips them
+            GithubCommitCache.CommitStats lineStats = new GithubCommitCache.CommitStats(
+                    commit.additions, commit.deletions, commit.changedFiles != null ? commit.changedFiles : 0);
+            if (commit.changedFiles != null) commitCache.put(commit.sha, lineStats);
+            String login = commit.authorLogin != null
+                    ? commit.authorLogin : resolveLogin(commit, loginByEmail, result.statsByLogin);
+            if (login == null) continue;
+            logins.add(login);
+
+            StudentStats stats = result.statsByLogin.get(login.toLowerCase(Locale.ROOT));
+            if (stats == null) continue; // not a registered student
+            stats.weeksOf(repo.getRepoId()).add(
+                    WeekBuckets.githubWeekIndexOf(commit.authoredAt.getEpochSecond()),
+                    1, commit.additions, commit.deletions);
+            stats.totalCommits   += 1;
+            stats.totalAdditions += commit.additions;
+            stats.totalDeletions += commit.deletions;
+            result.commitDetails.add(toCommitDetail(stats, repo, commit.sha, commit.message, commit.url,
+                    commit.authoredAt, lineStats));
+        }
+        result.logins = new ArrayList<>(logins);
+        log.info("{} of {}/{}: {} commits", incremental ? "Incremental sync" : "History",
+                repo.getOwner(), repo.getRepoName(), commits.size());
+    }
+
+    // =========================================================================
+    //  Local git mirror
+    // =========================================================================
+
+    /**
+     * {@code github.client.mode=git-mirror}: updates the repository's bare mirror and
+     * walks its history locally. Only the commits after the cursor are read when the
+     * cursor is still an ancestor of HEAD, otherwise the full history, which replaces
+     * the stored weeks. No GitHub API quota is used and there is no 202 to wait out.
+     */
+    private RepoFetchResult fetchRepositoryFromMirror(
+            GithubRepository repo, Map<String, StudentStats> statsByLogin, boolean allowIncremental) {
+
+        RepoFetchResult result = new RepoFetchResult(repo, statsByLogin);
+        try {
+            Path mirror = gitMirrorClient.update(repo.getOwner(), repo.getRepoName());
+            boolean incremental = allowIncremental && repo.getLastCommitSha() != null
+                    && gitMirrorClient.isAncestorOfHead(mirror, repo.getLastCommitSha());
+            HistoryCommit head = gitMirrorClient.head(mirror);
+            List<HistoryCommit> commits = gitMirrorClient.log(
+                    mirror, incremental ? repo.getLastCommitSha() : null, head.sha);
+            for (HistoryCommit commit : commits) {
+                commit.url = "https://github.com/" + repo.getOwner() + "/" + repo.getRepoName() + "/commit/" + commit.sha;
+            }
+            applyHistory(result, commits, incremental);
+            // the newest listed commit need not be HEAD once merges interleave branches
+            result.cursorSha = head.sha;
+            result.cursorAt = LocalDateTime.ofInstant(head.committedAt, ZoneOffset.UTC);
+        } catch (Exception ex) {
+            String msg = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+            log.warn("Git mirror sync failed for {}/{}: {}", repo.getOwner(), repo.getRepoName(), msg);
+            result.errorMessage = msg;
+            result.errorStatus = statusOf(ex);
+        }
+        return result;
+    }
+
+    /**
+     * GitHub login of a commit read from a mirror, which records only name and e-mail:
+     * a GitHub no-reply address, else a registered student's account e-mail, else an
+     * author name equal to a registered GitHub username.
+     */
+    private String resolveLogin(HistoryCommit commit, Map<String, String> loginByEmail, Map<String, StudentStats> statsByLogin) {
+        String email = commit.authorEmail != null ? commit.authorEmail.toLowerCase(Locale.ROOT) : "";
+        Matcher noreply = NOREPLY_EMAIL.matcher(email);
+        if (noreply.matches()) return noreply.group(1);
+        if (loginByEmail.containsKey(email)) return loginByEmail.get(email);
+        if (commit.authorName != null && statsByLogin.containsKey(commit.authorName.toLowerCase(Locale.ROOT))) {
+            return commit.authorName;
+        }
+        return null;
+    }
+
+    // =========================================================================
+    //  GitHub API – incremental sync from the cursor
+    // =========================================================================
+
+    /**
+     * Lists the commits after the repository's cursor and folds the ones by registered
+     * students into {@code statsByLogin}, with line counts from the single-commit
+     * endpoint. Page 1 is requested with the stored ETag, so a repository without new
+     * commits costs one conditional request.
+     *
+     * <p>The listing filters on committer date, so the commits of a branch merged with a
+     * merge commit are missing when they were written before the cursor; any new merge
+     * commit therefore sends the repository to a full resync.
+     *
+     * @return the result, or {@code null} when a full resync is needed instead: more than
+     *         {@code github.sync.max-incremental-commits} new commits, a new merge
+     *         commit, or the cursor commit is gone (history rewritten)
+     */
+    @SuppressWarnings("unchecked")
+    private RepoFetchResult fetchNewCommits(
+            GithubRepository repo,
+            Map<String, StudentStats> statsByLogin,
+            GithubRateLimiter.Priority priority) {
+
+        RepoFetchResult result = new RepoFetchResult(repo, statsByLogin);
+        result.incremental = true;
+        result.cursorSha = repo.getLastCommitSha();
+        result.cursorAt = repo.getLastCommitAt();
+        result.cursorEtag = repo.getCommitsEtag();
+
+        // One second back so the cursor commit itself is listed and proves the history is intact
+        String baseUrl = githubApiBase + "/repos/" + repo.getOwner() + "/" + repo.getRepoName()
+                + "/commits?per_page=100&since="
+                + repo.getLastCommitAt().minusSeconds(1).toInstant(ZoneOffset.UTC);
+
+        try {
+            List<Map<String, Object>> newCommits = new ArrayList<>();
+            boolean reachedCursor = false;
+            for (int page = 1; !reachedCursor; page++) {
+                String url = baseUrl + "&page=" + page;
+                GithubHttpClient.GithubResponse response = page == 1
+                        ? githubHttpClient.getIfNoneMatch(url, repo.getCommitsEtag(), priority)
+                        : githubHttpClient.get(url, priority);
+                if (page == 1) {
+                    if (response.status == 304) return result; // nothing new since the last sync
+                    result.cursorEtag = response.headers.getETag();
+                }
+                if (response.status != 200) {
+                    throw new IllegalStateException("GitHub returned HTTP " + response.status + " for " + url);
+                }
+
+                List<Map<String, Object>> commits = readList(response.body);
+                for (Map<String, Object> commit : commits) {
+                    if (repo.getLastCommitSha().equals(commit.get("sha"))) {
+                        reachedCursor = true;
+                        break;
+                    }
+                    if (isMergeCommit(commit)) {
+                        log.info("Merge commit {} in {}/{} may bring older commits, resyncing fully",
+                                commit.get("sha"), repo.getOwner(), repo.getRepoName());
+                        return null;
                     }
+                    newCommits.add(commit);
                 }
-                diagnostic = String.join(" | ", rawLogins);
-                accumulateContributorStats(contributors, statsByLogin, repo, sinceEpoch, untilEpoch);
-            } else {
-                // 202 timeout: fallback to /commits API (immediate, no 202 issue, but no additions/deletions)
-                log.info("stats/contributors still computing for {}/{} — falling back to /commits API", repo.getOwner(), repo.getRepoName());
-                List<String> commitLogins = accumulateFromCommitsApi(repo, statsByLogin, sinceEpoch, untilEpoch);
-                if (commitLogins.isEmpty()) {
-                    diagnostic = hasToken
-                            ? "(still computing — gọi lại sau 30s để có đủ additions/deletions)"
-                            : "(chưa set GITHUB_TOKEN — set env variable GITHUB_TOKEN rồi restart server)";
-                } else {
-                    diagnostic = String.join(" | ", commitLogins) + " [via /commits API — additions/deletions=0, gọi lại sau để có đủ data]";
+                if (newCommits.size() > maxIncrementalCommits) {
+                    log.info("{} new commits in {}/{} exceed the incremental limit, resyncing fully",
+                            newCommits.size(), repo.getOwner(), repo.getRepoName());
+                    return null;
+                }
+                if (!reachedCursor && commits.size() < 100) {
+                    log.info("Sync cursor {} no longer in the history of {}/{}, resyncing fully",
+                            repo.getLastCommitSha(), repo.getOwner(), repo.getRepoName());
+                    return null;
                 }
             }
 
-            repoDiagnostic.put(repo.getRepoId(), diagnostic);
-        }
+            if (!newCommits.isEmpty()) {
+                result.cursorSha = (String) newCommits.get(0).get("sha");
+                result.cursorAt = committerDate(newCommits.get(0));
+            }
 
-        // 4. Persist weekly aggregates
-        for (GithubRepository repo : repos) {
-            persistWeeklyContributions(repo, statsByLogin);
-        }
+            Set<String> matchedLogins = new LinkedHashSet<>();
+            for (Map<String, Object> commit : newCommits) {
+                String login = extractLogin(commit);
+                if (login == null) continue;
+                String loginKey = login.toLowerCase(Locale.ROOT);
+                StudentStats stats = statsByLogin.get(loginKey);
+                if (stats == null) continue; // not a registered student
+
+                GithubCommitCache.CommitStats lineStats = commitStats(repo, (String) commit.get("sha"), priority);
+                int additions = lineStats.additions;
+                int deletions = lineStats.deletions;
+
+                Map<String, Object> authorInner = (Map<String, Object>) ((Map<String, Object>) commit.get("commit")).get("author");
+                long authoredAt = Instant.parse((String) authorInner.get("date")).getEpochSecond();
 
-        // 5. Generate CSV
-        return buildCsv(repos, statsByLogin, since, until, projectId, repoDiagnostic, hasToken);
+                stats.weeksOf(repo.getRepoId())
+                        .add(WeekBuckets.githubWeekIndexOf(authoredAt), 1, additions, deletions);
+                stats.totalCommits   += 1;
+                stats.totalAdditions += additions;
+                stats.totalDeletions += deletions;
+                matchedLogins.add(loginKey);
+                result.commitDetails.add(toCommitDetail(stats, repo, commit, lineStats));
+            }
+            result.logins = new ArrayList<>(matchedLogins);
+            result.newCommits = newCommits.size();
+            log.info("Incremental sync of {}/{}: {} new commits", repo.getOwner(), repo.getRepoName(), newCommits.size());
+        } catch (Exception ex) {
+            String msg = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+            log.warn("Incremental sync failed for {}/{}: {}", repo.getOwner(), repo.getRepoName(), msg);
+            result.errorMessage = msg;
+            result.errorStatus = statusOf(ex);
+        }
+        return result;
     }
 
     /**
-     * Same logic as {@link #generateCommitCsvReport} but returns a structured
-     * {@link CommitReportResponse} JSON object — easier for frontend to consume.
+     * Line stats of one commit from {@link GithubCommitCache}, or else from
+     * {@code GET /repos/{owner}/{repo}/commits/{sha}}; each SHA is fetched once.
+     * The response bypasses {@link GithubResponseCache}, which would otherwise keep
+     * every patch on disk as well.
      */
-    @Transactional
-    public CommitReportResponse generateCommitJsonReport(
-            Integer projectId, String since, String until) {
+    @SuppressWarnings("unchecked")
+    private GithubCommitCache.CommitStats commitStats(
+            GithubRepository repo, String sha, GithubRateLimiter.Priority priority) {
 
-        List<GithubRepository> repos = repoRepository.findByProject_ProjectId(projectId);
-        if (repos.isEmpty()) {
-            throw new ValidationException(
-                    "No repositories found for project ID: " + projectId
-                            + ". Please submit at least one GitHub repository first.");
-        }
+        GithubCommitCache.CommitStats cached = commitCache.get(sha);
+        if (cached != null) return cached;
 
-        List<CourseEnrollment> enrollments = enrollmentRepository.findByProject_ProjectId(projectId);
-        if (enrollments.isEmpty()) {
-            throw new ValidationException("No students are enrolled in project ID: " + projectId);
+        String url = githubApiBase + "/repos/" + repo.getOwner() + "/" + repo.getRepoName() + "/commits/" + sha;
+        GithubHttpClient.GithubResponse response = githubHttpClient.getIfNoneMatch(url, null, priority);
+        if (response.status != 200) {
+            throw new IllegalStateException("GitHub returned HTTP " + response.status + " for commit " + sha);
         }
+        Map<String, Object> detail = objectMapper.readValue(response.body, new TypeReference<Map<String, Object>>() {});
+        Map<String, Object> lineStats = (Map<String, Object>) detail.get("stats");
+        List<Object> files = (List<Object>) detail.get("files");
+        List<Object> parents = (List<Object>) detail.get("parents");
+        GithubCommitCache.CommitStats stats = new GithubCommitCache.CommitStats(
+                lineStats != null ? ((Number) lineStats.get("additions")).intValue() : 0,
+                lineStats != null ? ((Number) lineStats.get("deletions")).intValue() : 0,
+                files != null ? files.size() : 0,
+                parents != null ? parents.size() : 1);
+        commitCache.put(sha, stats);
+        return stats;
+    }
 
-        Map<String, StudentStats> statsByLogin = new LinkedHashMap<>();
-        for (CourseEnrollment e : enrollments) {
-            Student s = e.getStudent();
-            if (s.getGithubUsername() != null && !s.getGithubUsername().isBlank()) {
-                String key = s.getGithubUsername().toLowerCase(Locale.ROOT);
-                statsByLogin.put(key, new StudentStats(s, e.getRoleInProject(), e.getGroupNumber()));
+    /** Takes the newest commit as the cursor after a full sync; the cursor stays unset on failure. */
+    private void readHeadCursor(GithubRepository repo, RepoFetchResult result, GithubRateLimiter.Priority priority) {
+        String url = githubApiBase + "/repos/" + repo.getOwner() + "/" + repo.getRepoName() + "/commits?per_page=1";
+        try {
+            GithubHttpClient.GithubResponse response = githubHttpClient.get(url, priority);
+            List<Map<String, Object>> commits = response.status == 200 ? readList(response.body) : List.of();
+            if (!commits.isEmpty()) {
+                result.cursorSha = (String) commits.get(0).get("sha");
+                result.cursorAt = committerDate(commits.get(0));
             }
+        } catch (Exception ex) {
+            log.debug("Could not read head commit of {}/{}: {}", repo.getOwner(), repo.getRepoName(), ex.getMessage());
         }
+    }
 
-        Long sinceEpoch = since != null && !since.isBlank()
-                ? LocalDate.parse(since).atStartOfDay(ZoneOffset.UTC).toEpochSecond() : null;
-        Long untilEpoch = until != null && !until.isBlank()
-                ? LocalDate.parse(until).atTime(23, 59, 59).toInstant(ZoneOffset.UTC).getEpochSecond() : null;
-
-        boolean hasToken = githubToken != null && !githubToken.isBlank();
-        Map<Integer, String> repoDiagnostic = new LinkedHashMap<>();
-
-        for (GithubRepository repo : repos) {
-            List<Map<String, Object>> contributors = Collections.emptyList();
-            String diagnostic;
-
-            try {
-                contributors = fetchContributorStats(repo.getOwner(), repo.getRepoName());
-            } catch (Exception ex) {
-                String msg = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
-                log.warn("stats/contributors failed for {}/{}: {}", repo.getOwner(), repo.getRepoName(), msg);
-                if (msg.contains("404")) {
-                    diagnostic = "ERROR 404: repo không tìm thấy hoặc là private";
-                } else if (msg.contains("401") || msg.contains("403")) {
-                    diagnostic = "ERROR " + (msg.contains("401") ? "401" : "403") + ": token không hợp lệ hay hết hạn";
-                } else {
-                    diagnostic = "ERROR: " + msg;
-                }
-                repoDiagnostic.put(repo.getRepoId(), diagnostic);
-                continue;
-            }
-
-            if (!contributors.isEmpty()) {
-                List<String> rawLogins = new ArrayList<>();
-                for (Map<String, Object> c : contributors) {
-                    String login = extractLogin(c);
-                    if (login != null) rawLogins.add(login);
-                }
-                diagnostic = String.join(", ", rawLogins);
-                accumulateContributorStats(contributors, statsByLogin, repo, sinceEpoch, untilEpoch);
-            } else {
-                List<String> commitLogins = accumulateFromCommitsApi(repo, statsByLogin, sinceEpoch, untilEpoch);
-                if (commitLogins.isEmpty()) {
-                    diagnostic = hasToken
-                            ? "still computing — gọi lại sau 30s"
-                            : "chưa set GITHUB_TOKEN — set env variable rồi restart server";
-                } else {
-                    diagnostic = String.join(", ", commitLogins) + " [via /commits API — additions/deletions=0]";
-                }
-            }
+    /** Committer date of a commit listing entry, as UTC (the clock GitHub's {@code since} filters on). */
+    @SuppressWarnings("unchecked")
+    private LocalDateTime committerDate(Map<String, Object> commit) {
+        Map<String, Object> committer = (Map<String, Object>) ((Map<String, Object>) commit.get("commit")).get("committer");
+        return LocalDateTime.ofInstant(Instant.parse((String) committer.get("date")), ZoneOffset.UTC);
+    }
 
-            repoDiagnostic.put(repo.getRepoId(), diagnostic);
-        }
+    /**
+     * Maps a commit listing entry (and, when known, its line stats and file count)
+     * to a {@code commit_details} row of the student's week.
+     */
+    @SuppressWarnings("unchecked")
+    private CommitDetail toCommitDetail(
+            StudentStats stats, GithubRepository repo,
+            Map<String, Object> commit, GithubCommitCache.CommitStats lineStats) {
+
+        Map<String, Object> commitInner = (Map<String, Object>) commit.get("commit");
+        Map<String, Object> authorInner = (Map<String, Object>) commitInner.get("author");
+        return toCommitDetail(stats, repo, (String) commit.get("sha"), (String) commitInner.get("message"),
+                (String) commit.get("html_url"), Instant.parse((String) authorInner.get("date")), lineStats);
+    }
 
-        for (GithubRepository repo : repos) {
-            persistWeeklyContributions(repo, statsByLogin);
+    private CommitDetail toCommitDetail(
+            StudentStats stats, GithubRepository repo, String sha, String message, String url,
+            Instant authoredAt, GithubCommitCache.CommitStats lineStats) {
+
+        int yearWeek = WeekBuckets.yearWeekOf(WeekBuckets.githubWeekIndexOf(authoredAt.getEpochSecond()));
+
+        CommitContribution week = new CommitContribution();
+        week.setStudent(stats.student);
+        week.setRepository(repo);
+        week.setYear(yearWeek / 100);
+        week.setWeekNumber(yearWeek % 100);
+
+        CommitDetail d = new CommitDetail();
+        d.setContribution(week);
+        d.setCommitHash(sha);
+        d.setCommitMessage(message);
+        d.setCommittedAt(LocalDateTime.ofInstant(authoredAt, ZoneId.systemDefault()));
+        d.setCommitUrl(url);
+        if (lineStats != null) {
+            d.setAdditions(lineStats.additions);
+            d.setDeletions(lineStats.deletions);
+            d.setFilesChanged(lineStats.filesChanged);
         }
-
-        return buildJsonReport(repos, statsByLogin, since, until, projectId, repoDiagnostic, hasToken);
+        return d;
     }
 
     // =========================================================================
@@ -272,188 +1334,200 @@ public class GithubApiService {
     // =========================================================================
 
     /**
-     * Calls {@code GET /repos/{owner}/{repo}/stats/contributors}.
-     * Retries up to 3 times (2 s back-off) when GitHub returns 202 (computing).
+     * Calls {@code GET /repos/{owner}/{repo}/stats/contributors}, retrying 202
+     * (computing) and 5xx / I/O failures with the {@link GithubRetryPolicy} backoff
+     * until its deadline. 4xx responses are thrown at once.
+     *
+     * @param onComputing called with the retry number each time GitHub answers 202
+     * @return the raw JSON body for {@link ContributorStatsDecoder}, or {@code null}
+     *         when GitHub was still computing at the deadline
      */
-    @SuppressWarnings("unchecked")
-    private List<Map<String, Object>> fetchContributorStats(String owner, String repo) {
-        String url = GITHUB_API_BASE + "/repos/" + owner + "/" + repo + "/stats/contributors";
-        final int MAX_ATTEMPTS = 6;
-        final long WAIT_MS = 5000;
+    private byte[] fetchContributorStats(
+            String owner, String repo, GithubRateLimiter.Priority priority, IntConsumer onComputing) {
+        String url = githubApiBase + "/repos/" + owner + "/" + repo + "/stats/contributors";
+        GithubRetryPolicy.Backoff backoff = retryPolicy.start();
 
-        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+        while (true) {
             try {
-                ResponseEntity<List> response = restTemplate.exchange(
-                        url, HttpMethod.GET, buildRequestEntity(), List.class);
-
-                int status = response.getStatusCode().value();
-                if (status == 200 && response.getBody() != null && !response.getBody().isEmpty()) {
-                    log.info("Fetched contributor stats for {}/{} ({} contributors)",
-                            owner, repo, response.getBody().size());
-                    return response.getBody();
+                GithubHttpClient.GithubResponse response = githubHttpClient.get(url, priority);
+
+                int status = response.status;
+                if (status == 200 && isNonEmptyArray(response.body)) {
+                    log.info("Fetched contributor stats for {}/{} ({} bytes{}, {} retries)", owner, repo,
+                            response.body.length, response.fromCache ? ", not modified" : "", backoff.retries());
+                    return response.body;
                 }
-                if (status == 202 || (status == 200 && (response.getBody() == null || response.getBody().isEmpty()))) {
-                    log.info("GitHub is computing stats for {}/{}, attempt {}/{} – waiting {} ms",
-                            owner, repo, attempt, MAX_ATTEMPTS, WAIT_MS);
-                    Thread.sleep(WAIT_MS);
-                } else {
+                if (status != 202 && status != 200) {
                     log.warn("Unexpected status {} for {}/{}", status, owner, repo);
-                    break;
+                    return null;
+                }
+                log.info("GitHub is computing stats for {}/{} (retry {})", owner, repo, backoff.retries() + 1);
+                onComputing.accept(backoff.retries() + 1);
+                if (!backoff.await(response.headers)) {
+                    log.warn("GitHub still computing stats for {}/{} after {} retries – data will be empty",
+                            owner, repo, backoff.retries());
+                    return null;
+                }
+            } catch (RestClientResponseException ex) {
+                // 4xx will not go away by asking again; keep the status in the message for the diagnostic
+                if (ex.getStatusCode().is4xxClientError()) throw ex;
+                log.error("GitHub API error for {}/{} (retry {}): {}", owner, repo, backoff.retries(), ex.getMessage());
+                if (!backoff.await(ex.getResponseHeaders())) throw ex;
+            } catch (RuntimeException ex) {
+                log.error("GitHub API error for {}/{} (retry {}): {}", owner, repo, backoff.retries(), ex.getMessage());
+                if (!backoff.await(null)) {
+                    throw new IllegalStateException("GitHub API unavailable for " + owner + "/" + repo + ": " + ex.getMessage(), ex);
                 }
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (Exception ex) {
-                log.error("GitHub API error for {}/{} attempt {}: {}", owner, repo, attempt, ex.getMessage());
-                if (attempt == MAX_ATTEMPTS) throw new RuntimeException("GitHub API unavailable for " + owner + "/" + repo, ex);
             }
         }
-        log.warn("GitHub still computing stats for {}/{} after {} attempts – data will be empty", owner, repo, MAX_ATTEMPTS);
-        return Collections.emptyList();
+    }
+
+    /**
+     * HTTP status behind a failed fetch: the REST response's, or the "NNN …" prefix the
+     * GraphQL and git-mirror clients put on their messages; {@code null} when unknown.
+     */
+    private Integer statusOf(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof RestClientResponseException response) return response.getStatusCode().value();
+            Matcher m = t.getMessage() != null ? STATUS_PREFIX.matcher(t.getMessage()) : null;
+            if (m != null && m.lookingAt()) return Integer.parseInt(m.group(1));
+        }
+        return null;
+    }
+
+    /** Cheap check for a JSON array with at least one element, without parsing it. */
+    private boolean isNonEmptyArray(byte[] body) {
+        if (body == null) return false;
+        int i = 0;
+        while (i < body.length && Character.isWhitespace(body[i])) i++;
+        if (i == body.length || body[i] != '[') return false;
+        i++;
+        while (i < body.length && Character.isWhitespace(body[i])) i++;
+        return i < body.length && body[i] != ']';
     }
 
     /**
      * Fallback: GET /repos/{owner}/{repo}/commits — returns immediately (no 202).
-     * Counts commits per student per week. Additions/deletions are NOT available here.
+     * Pages through the repo's commit list for the date window <b>once</b> and routes
+     * each commit to its student via the GitHub login, instead of one pagination per
+     * student. Additions/deletions are NOT available here.
+     * @param commitDetails receives every matched commit for {@code commit_details}
      * @return list of contributor logins that were found and matched to students
      */
     @SuppressWarnings("unchecked")
     private List<String> accumulateFromCommitsApi(
             GithubRepository repo,
             Map<String, StudentStats> statsByLogin,
-            Long sinceEpoch, Long untilEpoch) {
+            Long sinceEpoch, Long untilEpoch,
+            GithubRateLimiter.Priority priority,
+            List<CommitDetail> commitDetails) {
 
         Set<String> matchedLogins = new LinkedHashSet<>();
-        String baseUrl = GITHUB_API_BASE + "/repos/" + repo.getOwner() + "/" + repo.getRepoName() + "/commits";
-
-        for (String loginKey : statsByLogin.keySet()) {
-            int page = 1;
-            while (true) {
-                try {
-                    StringBuilder url = new StringBuilder(baseUrl)
-                            .append("?author=").append(loginKey)
-                            .append("&per_page=100&page=").append(page);
-                    if (sinceEpoch != null) {
-                        url.append("&since=").append(
-                                Instant.ofEpochSecond(sinceEpoch).toString());
-                    }
-                    if (untilEpoch != null) {
-                        url.append("&until=").append(
-                                Instant.ofEpochSecond(untilEpoch).toString());
-                    }
+        String baseUrl = githubApiBase + "/repos/" + repo.getOwner() + "/" + repo.getRepoName() + "/commits";
 
-                    ResponseEntity<List> response = restTemplate.exchange(
-                            url.toString(), HttpMethod.GET, buildRequestEntity(), List.class);
-
-                    if (response.getStatusCode().value() != 200 || response.getBody() == null) break;
-                    List<Map<String, Object>> commits = response.getBody();
-                    if (commits.isEmpty()) break;
-
-                    matchedLogins.add(loginKey);
-                    StudentStats stats = statsByLogin.get(loginKey);
-
-                    for (Map<String, Object> commit : commits) {
-                        try {
-                            Map<String, Object> commitInner = (Map<String, Object>) commit.get("commit");
-                            Map<String, Object> authorInner = (Map<String, Object>) commitInner.get("author");
-                            String dateStr = (String) authorInner.get("date");
-                            Instant instant = Instant.parse(dateStr);
-                            long epochSec = instant.getEpochSecond();
-
-                            if (sinceEpoch != null && epochSec < sinceEpoch) continue;
-                            if (untilEpoch != null && epochSec > untilEpoch) continue;
-
-                            LocalDate d = instant.atZone(ZoneOffset.UTC).toLocalDate();
-                            int isoWeek = d.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
-                            int isoYear = d.get(IsoFields.WEEK_BASED_YEAR);
-                            int weekKey = isoYear * 100 + isoWeek;
-
-                            stats.weeklyDetails
-                                    .computeIfAbsent(repo.getRepoId(), k -> new TreeMap<>())
-                                    .merge(weekKey, new WeekStat(1, 0, 0), WeekStat::add);
-                            stats.totalCommits += 1;
-                        } catch (Exception e) {
-                            log.debug("Could not parse commit entry: {}", e.getMessage());
-                        }
-                    }
+        int page = 1;
+        while (true) {
+            try {
+                StringBuilder url = new StringBuilder(baseUrl)
+                        .append("?per_page=100&page=").append(page);
+                if (sinceEpoch != null) {
+                    url.append("&since=").append(
+                            Instant.ofEpochSecond(sinceEpoch).toString());
+                }
+                if (untilEpoch != null) {
+                    url.append("&until=").append(
+                            Instant.ofEpochSecond(untilEpoch).toString());
+                }
 
-                    if (commits.size() < 100) break; // last page
-                    page++;
-                } catch (Exception ex) {
-                    log.warn("/commits API error for {}/{} author={}: {}", repo.getOwner(), repo.getRepoName(), loginKey, ex.getMessage());
-                    break;
+                GithubHttpClient.GithubResponse response = githubHttpClient.get(url.toString(), priority);
+
+                if (response.status != 200 || response.body == null) break;
+                List<Map<String, Object>> commits = readList(response.body);
+                if (commits.isEmpty()) break;
+
+                for (Map<String, Object> commit : commits) {
+                    try {
+                        if (isMergeCommit(commit)) continue;
+                        // Top-level "author" is the GitHub account; null when the email is not linked to one
+                        String login = extractLogin(commit);
+                        if (login == null) continue;
+                        String loginKey = login.toLowerCase(Locale.ROOT);
+                        StudentStats stats = statsByLogin.get(loginKey);
+                        if (stats == null) continue; // not a registered student
+
+                        Map<String, Object> commitInner = (Map<String, Object>) commit.get("commit");
+                        Map<String, Object> authorInner = (Map<String, Object>) commitInner.get("author");
+                        String dateStr = (String) authorInner.get("date");
+                        Instant instant = Instant.parse(dateStr);
+                        long epochSec = instant.getEpochSecond();
+
+                        if (sinceEpoch != null && epochSec < sinceEpoch) continue;
+                        if (untilEpoch != null && epochSec > untilEpoch) continue;
+
+                        stats.weeksOf(repo.getRepoId())
+                                .add(WeekBuckets.githubWeekIndexOf(epochSec), 1, 0, 0);
+                        stats.totalCommits += 1;
+                        commitDetails.add(toCommitDetail(stats, repo, commit, null));
+                        matchedLogins.add(loginKey);
+                    } catch (Exception e) {
+                        log.debug("Could not parse commit entry: {}", e.getMessage());
+                    }
                 }
+
+                if (commits.size() < 100) break; // last page
+                page++;
+            } catch (Exception ex) {
+                log.warn("/commits API error for {}/{} page={}: {}", repo.getOwner(), repo.getRepoName(), page, ex.getMessage());
+                break;
             }
         }
         return new ArrayList<>(matchedLogins);
     }
 
-    private HttpEntity<Void> buildRequestEntity() {
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Accept", "application/vnd.github.v3+json");
-        headers.set("X-GitHub-Api-Version", "2022-11-28");
-        if (githubToken != null && !githubToken.isBlank()) {
-            headers.set("Authorization", "Bearer " + githubToken);
-        }
-        return new HttpEntity<>(headers);
+    private List<Map<String, Object>> readList(byte[] body) {
+        if (body == null || body.length == 0) return Collections.emptyList();
+        return objectMapper.readValue(body, new TypeReference<List<Map<String, Object>>>() {});
     }
 
     // =========================================================================
     //  Accumulation – match GitHub contributors → students
     // =========================================================================
 
-    @SuppressWarnings("unchecked")
-    private void accumulateContributorStats(
-            List<Map<String, Object>> contributors,
+    /**
+     * Streams the stats/contributors body through {@link ContributorStatsDecoder},
+     * adding in-window weeks of registered students straight into their stats.
+     *
+     * @return GitHub logins of all contributors, registered or not
+     */
+    private List<String> accumulateContributorStats(
+            byte[] contributors,
             Map<String, StudentStats> statsByLogin,
             GithubRepository repo,
             Long sinceEpoch, Long untilEpoch) {
 
-        for (Map<String, Object> contributor : contributors) {
-            String login = extractLogin(contributor);
-            if (login == null) continue;
-
-            String loginKey = login.toLowerCase(Locale.ROOT);
-            if (!statsByLogin.containsKey(loginKey)) continue; // not a registered student
-
-            StudentStats stats = statsByLogin.get(loginKey);
-            List<Map<String, Object>> weeks = (List<Map<String, Object>>) contributor.get("weeks");
-            if (weeks == null) continue;
-
-            for (Map<String, Object> week : weeks) {
-                int commits = toInt(week.get("c"));
-                if (commits == 0) continue;
-
-                long weekStartEpoch = toLong(week.get("w"));
+        ContributorStatsDecoder decoder = new ContributorStatsDecoder(sinceEpoch, untilEpoch);
+        try (JsonParser parser = objectMapper.createParser(contributors)) {
+            return decoder.decode(parser, (login, weekStartEpoch, commits, additions, deletions) -> {
+                StudentStats stats = statsByLogin.get(login.toLowerCase(Locale.ROOT));
+                if (stats == null) return; // not a registered student
 
-                // Apply date filter
-                if (sinceEpoch != null && weekStartEpoch < sinceEpoch) continue;
-                if (untilEpoch != null && weekStartEpoch > untilEpoch) continue;
-
-                int additions = toInt(week.get("a"));
-                int deletions = toInt(week.get("d"));
-
-                // Convert epoch to ISO year-week
-                LocalDate weekDate = Instant.ofEpochSecond(weekStartEpoch)
-                        .atZone(ZoneOffset.UTC).toLocalDate();
-                int isoWeek = weekDate.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
-                int isoYear = weekDate.get(IsoFields.WEEK_BASED_YEAR);
-
-                int weekKey = isoYear * 100 + isoWeek;
-
-                // Accumulate per-repo weekly detail
-                stats.weeklyDetails
-                        .computeIfAbsent(repo.getRepoId(), k -> new TreeMap<>())
-                        .merge(weekKey, new WeekStat(commits, additions, deletions), WeekStat::add);
+                // Accumulate per-repo weekly detail (GitHub weeks start on Sunday → ISO week containing that day)
+                stats.weeksOf(repo.getRepoId()).add(
+                        WeekBuckets.githubWeekIndexOf(weekStartEpoch), commits, additions, deletions);
 
                 // Accumulate totals
                 stats.totalCommits  += commits;
                 stats.totalAdditions += additions;
                 stats.totalDeletions += deletions;
-            }
+            });
         }
     }
 
+    /** Whether a commit listing entry has more than one parent; merges are left out of every count. */
+    private boolean isMergeCommit(Map<String, Object> commit) {
+        return commit.get("parents") instanceof List<?> parents && parents.size() > 1;
+    }
+
     @SuppressWarnings("unchecked")
     private String extractLogin(Map<String, Object> contributor) {
         try {
@@ -471,156 +1545,161 @@ public class GithubApiService {
     //  Persistence – upsert weekly aggregates into commit_contributions
     // =========================================================================
 
-    @Transactional
-    protected void persistWeeklyContributions(
-            GithubRepository repo, Map<String, StudentStats> statsByLogin) {
-
-        for (StudentStats stats : statsByLogin.values()) {
-            Map<Integer, WeekStat> repoWeeks = stats.weeklyDetails.get(repo.getRepoId());
-            if (repoWeeks == null) continue;
-
-            for (Map.Entry<Integer, WeekStat> e : repoWeeks.entrySet()) {
-                int yearWeek = e.getKey();
-                int year = yearWeek / 100;
-                int week = yearWeek % 100;
-                WeekStat ws = e.getValue();
-
-                Optional<CommitContribution> existing =
-                        contributionRepository.findByStudent_StudentIdAndRepository_RepoIdAndWeekNumberAndYear(
-                                stats.student.getStudentId(), repo.getRepoId(), week, year);
+    /**
+     * One row per student × repo × week of {@code repos}, for a batched
+     * {@link CommitContributionRepository#replaceAll}, {@link CommitContributionRepository#upsertAll}
+     * or {@link CommitContributionRepository#addAll}.
+     */
+    private List<CommitContribution> toContributionRows(
+            List<GithubRepository> repos, Map<String, StudentStats> statsByLogin) {
 
-                CommitContribution c = existing.orElseGet(CommitContribution::new);
-                c.setStudent(stats.student);
-                c.setRepository(repo);
-                c.setGithubAuthor(stats.student.getGithubUsername());
-                c.setWeekNumber(week);
-                c.setYear(year);
-                c.setTotalCommits(ws.commits);
-                c.setAdditions(ws.additions);
-                c.setDeletions(ws.deletions);
-                contributionRepository.save(c);
+        List<CommitContribution> rows = new ArrayList<>();
+        for (GithubRepository repo : repos) {
+            for (StudentStats stats : statsByLogin.values()) {
+                WeekBuckets repoWeeks = stats.weeklyDetails.get(repo.getRepoId());
+                if (repoWeeks == null) continue;
+
+                for (int i = 0; i < repoWeeks.size(); i++) {
+                    if (repoWeeks.isEmpty(i)) continue;
+                    int yearWeek = repoWeeks.yearWeek(i);
+
+                    CommitContribution c = new CommitContribution();
+                    c.setStudent(stats.student);
+                    c.setRepository(repo);
+                    c.setGithubAuthor(stats.student.getGithubUsername());
+                    c.setWeekNumber(yearWeek % 100);
+                    c.setYear(yearWeek / 100);
+                    c.setTotalCommits(repoWeeks.commits(i));
+                    c.setAdditions(repoWeeks.additions(i));
+                    c.setDeletions(repoWeeks.deletions(i));
+                    rows.add(c);
+                }
             }
         }
+        return rows;
     }
 
     // =========================================================================
     //  CSV generation
     // =========================================================================
 
-    private ByteArrayInputStream buildCsv(
-            List<GithubRepository> repos,
-            Map<String, StudentStats> statsByLogin,
-            String since, String until,
-            Integer projectId,
-            Map<Integer, String> repoDiagnostic,
-            boolean hasToken) {
-
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
-             PrintWriter w = new PrintWriter(out)) {
-
-            // ---- Metadata ----
-            w.println("# GitHub Commit Report");
-            w.println("# Project ID:," + projectId);
-            w.println("# Repositories:," + repos.stream()
-                    .map(r -> r.getOwner() + "/" + r.getRepoName())
-                    .collect(Collectors.joining(" | ")));
-            w.println("# Period:," + (since != null ? since : "All") + " to " + (until != null ? until : "Now"));
-            w.println("# Generated:," + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-            w.println();
-
-            // ---- Diagnostic ----
-            w.println("=== Diagnostic: GitHub Contributors Found ===");
-            w.println("# GitHub Token configured: " + (hasToken ? "YES" : "NO — set GITHUB_TOKEN env variable"));
-            w.println("Repository,GitHub Logins Found / Status");
-            for (GithubRepository repo : repos) {
-                String info = repoDiagnostic.getOrDefault(repo.getRepoId(), "(not fetched)");
-                w.println(escapeCsv(repo.getOwner() + "/" + repo.getRepoName()) + "," + escapeCsv(info));
-            }
-            w.println("# Registered student GitHub usernames:," +
-                    statsByLogin.keySet().stream().collect(Collectors.joining(" | ")));
-            w.println();
-
-            // ---- Summary ----
-            w.println("=== Summary (Tổng hợp) ===");
-            w.println("Group,Student Code,Full Name,GitHub Username,Role,Total Commits,Total Additions,Total Deletions,Avg Commits/Week");
-
-            List<StudentStats> sorted = statsByLogin.values().stream()
-                    .sorted(Comparator.comparing(s -> s.student.getStudentCode()))
-                    .collect(Collectors.toList());
+    /**
+     * Writes the report row by row through a small buffer; the output stream is
+     * flushed but left open for the caller (servlet container) to close.
+     */
+    private void writeCsv(OutputStream out, ProjectReport report) throws IOException {
+        List<GithubRepository> repos = report.repos;
+        Map<String, StudentStats> statsByLogin = report.statsByLogin;
+        String since = report.since;
+        String until = report.until;
+        Integer projectId = report.projectId;
+        boolean hasToken = report.hasToken;
+
+        PrintWriter w = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+
+        // ---- Metadata ----
+        w.println("# GitHub Commit Report");
+        w.println("# Project ID:," + projectId);
+        w.println("# Repositories:," + repos.stream()
+                .map(r -> r.getOwner() + "/" + r.getRepoName())
+                .collect(Collectors.joining(" | ")));
+        w.println("# Period:," + (since != null ? since : "All") + " to " + (until != null ? until : "Now"));
+        w.println("# Generated:," + report.generatedAt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        w.println();
+
+        // ---- Diagnostic ----
+        w.println("=== Diagnostic: GitHub Contributors Found ===");
+        w.println("# GitHub Token configured: " + (hasToken ? "YES" : "NO — set GITHUB_TOKEN env variable"));
+        w.println("Repository,GitHub Logins Found / Status");
+        for (GithubRepository repo : repos) {
+            String info = csvDiagnostic(repo, report.repoStatus.get(repo.getRepoId()), hasToken);
+            w.println(escapeCsv(repo.getOwner() + "/" + repo.getRepoName()) + "," + escapeCsv(info));
+        }
+        w.println("# Registered student GitHub usernames:," +
+                statsByLogin.keySet().stream().collect(Collectors.joining(" | ")));
+        w.println();
+        w.flush(); // send the header sections before rendering the rows
 
-            for (StudentStats s : sorted) {
-                long weekCount = s.weeklyDetails.values().stream()
-                        .mapToLong(Map::size).sum();
-                double avgCommitsPerWeek = weekCount > 0
-                        ? (double) s.totalCommits / weekCount : 0.0;
+        // ---- Summary ----
+        w.println("=== Summary (Tổng hợp) ===");
+        w.println("Group,Student Code,Full Name,GitHub Username,Role,Total Commits,Total Additions,Total Deletions,Avg Commits/Week");
 
-                w.println(String.join(",",
-                        escapeCsv(s.groupNumber != null ? "Group " + s.groupNumber : ""),
-                        escapeCsv(s.student.getStudentCode()),
-                        escapeCsv(s.student.getUser().getFullName()),
-                        escapeCsv(s.student.getGithubUsername()),
-                        escapeCsv(s.roleInProject != null ? s.roleInProject : ""),
-                        String.valueOf(s.totalCommits),
-                        String.valueOf(s.totalAdditions),
-                        String.valueOf(s.totalDeletions),
-                        String.format("%.2f", avgCommitsPerWeek)
-                ));
-            }
-
-            w.println();
-
-            // ---- Weekly Detail ----
-            w.println("=== Weekly Detail (Chi tiết theo tuần) ===");
-            w.println("Group,Student Code,Full Name,GitHub Username,Repository,Year,Week,Commits,Additions,Deletions");
-
-            // Build lookup: repoId → "owner/repoName"
-            Map<Integer, String> repoNames = repos.stream()
-                    .collect(Collectors.toMap(GithubRepository::getRepoId,
-                            r -> r.getOwner() + "/" + r.getRepoName()));
-
-            for (StudentStats s : sorted) {
-                for (Map.Entry<Integer, TreeMap<Integer, WeekStat>> repoEntry : s.weeklyDetails.entrySet()) {
-                    String repoLabel = repoNames.getOrDefault(repoEntry.getKey(), "repo-" + repoEntry.getKey());
-                    for (Map.Entry<Integer, WeekStat> weekEntry : repoEntry.getValue().entrySet()) {
-                        int year = weekEntry.getKey() / 100;
-                        int week = weekEntry.getKey() % 100;
-                        WeekStat ws = weekEntry.getValue();
-                        w.println(String.join(",",
-                                escapeCsv(s.groupNumber != null ? "Group " + s.groupNumber : ""),
-                                escapeCsv(s.student.getStudentCode()),
-                                escapeCsv(s.student.getUser().getFullName()),
-                                escapeCsv(s.student.getGithubUsername()),
-                                escapeCsv(repoLabel),
-                                String.valueOf(year),
-                                String.valueOf(week),
-                                String.valueOf(ws.commits),
-                                String.valueOf(ws.additions),
-                                String.valueOf(ws.deletions)
-                        ));
-                    }
+        List<StudentStats> sorted = statsByLogin.values().stream()
+                .sorted(Comparator.comparing(s -> s.student.getStudentCode()))
+                .collect(Collectors.toList());
+
+        for (StudentStats s : sorted) {
+            long weekCount = s.activeWeeks();
+            double avgCommitsPerWeek = weekCount > 0
+                    ? (double) s.totalCommits / weekCount : 0.0;
+
+            w.println(String.join(",",
+                    escapeCsv(s.groupNumber != null ? "Group " + s.groupNumber : ""),
+                    escapeCsv(s.student.getStudentCode()),
+                    escapeCsv(s.student.getUser().getFullName()),
+                    escapeCsv(s.student.getGithubUsername()),
+                    escapeCsv(s.roleInProject != null ? s.roleInProject : ""),
+                    String.valueOf(s.totalCommits),
+                    String.valueOf(s.totalAdditions),
+                    String.valueOf(s.totalDeletions),
+                    String.format("%.2f", avgCommitsPerWeek)
+            ));
+        }
+
+        w.println();
+
+        // ---- Weekly Detail ----
+        w.println("=== Weekly Detail (Chi tiết theo tuần) ===");
+        w.println("Group,Student Code,Full Name,GitHub Username,Repository,Year,Week,Commits,Additions,Deletions");
+
+        // Build lookup: repoId → "owner/repoName"
+        Map<Integer, String> repoNames = repos.stream()
+                .collect(Collectors.toMap(GithubRepository::getRepoId,
+                        r -> r.getOwner() + "/" + r.getRepoName()));
+
+        for (StudentStats s : sorted) {
+            String studentColumns = String.join(",",
+                    escapeCsv(s.groupNumber != null ? "Group " + s.groupNumber : ""),
+                    escapeCsv(s.student.getStudentCode()),
+                    escapeCsv(s.student.getUser().getFullName()),
+                    escapeCsv(s.student.getGithubUsername()));
+            for (Map.Entry<Integer, WeekBuckets> repoEntry : s.weeklyDetails.entrySet()) {
+                String repoLabel = escapeCsv(repoNames.getOrDefault(repoEntry.getKey(), "repo-" + repoEntry.getKey()));
+                WeekBuckets weeks = repoEntry.getValue();
+                for (int i = 0; i < weeks.size(); i++) {
+                    if (weeks.isEmpty(i)) continue;
+                    int yearWeek = weeks.yearWeek(i);
+                    w.print(studentColumns);
+                    w.print(',');
+                    w.print(repoLabel);
+                    w.print(',');
+                    w.print(yearWeek / 100);
+                    w.print(',');
+                    w.print(yearWeek % 100);
+                    w.print(',');
+                    w.print(weeks.commits(i));
+                    w.print(',');
+                    w.print(weeks.additions(i));
+                    w.print(',');
+                    w.println(weeks.deletions(i));
                 }
             }
+        }
 
-            w.flush();
-            return new ByteArrayInputStream(out.toByteArray());
-
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to generate CSV report", e);
+        w.flush();
+        if (w.checkError()) {
+            throw new IOException("Failed to write CSV report for project " + projectId);
         }
     }
 
-    private CommitReportResponse buildJsonReport(
-            List<GithubRepository> repos,
-            Map<String, StudentStats> statsByLogin,
-            String since, String until,
-            Integer projectId,
-            Map<Integer, String> repoDiagnostic,
-            boolean hasToken) {
+    private CommitReportResponse buildJsonReport(ProjectReport report) {
+        List<GithubRepository> repos = report.repos;
+        Map<String, StudentStats> statsByLogin = report.statsByLogin;
 
         // Diagnostic repos
         List<CommitReportResponse.RepoDiagnostic> diagRepos = new ArrayList<>();
         for (GithubRepository repo : repos) {
-            String info = repoDiagnostic.getOrDefault(repo.getRepoId(), "(not fetched)");
+            String info = jsonDiagnostic(repo, report.repoStatus.get(repo.getRepoId()), report.hasToken);
             diagRepos.add(CommitReportResponse.RepoDiagnostic.builder()
                     .repository(repo.getOwner() + "/" + repo.getRepoName())
                     .status(info)
@@ -628,7 +1707,7 @@ public class GithubApiService {
         }
 
         CommitReportResponse.DiagnosticInfo diagnostic = CommitReportResponse.DiagnosticInfo.builder()
-                .githubTokenConfigured(hasToken)
+                .githubTokenConfigured(report.hasToken)
                 .repositories(diagRepos)
                 .registeredGithubUsernames(new ArrayList<>(statsByLogin.keySet()))
                 .build();
@@ -640,8 +1719,7 @@ public class GithubApiService {
 
         List<CommitReportResponse.StudentSummary> summaryList = new ArrayList<>();
         for (StudentStats s : sorted) {
-            long weekCount = s.weeklyDetails.values().stream()
-                    .mapToLong(Map::size).sum();
+            long weekCount = s.activeWeeks();
             double avgCommitsPerWeek = weekCount > 0
                     ? (double) s.totalCommits / weekCount : 0.0;
 
@@ -667,29 +1745,32 @@ public class GithubApiService {
         List<CommitReportResponse.StudentRepoSummary> summaryByRepo = new ArrayList<>();
 
         for (StudentStats s : sorted) {
-            for (Map.Entry<Integer, TreeMap<Integer, WeekStat>> repoEntry : s.weeklyDetails.entrySet()) {
+            for (Map.Entry<Integer, WeekBuckets> repoEntry : s.weeklyDetails.entrySet()) {
                 String repoLabel = repoNames.getOrDefault(repoEntry.getKey(), "repo-" + repoEntry.getKey());
+                WeekBuckets weeks = repoEntry.getValue();
 
                 int repoCommits = 0, repoAdditions = 0, repoDeletions = 0;
-                for (Map.Entry<Integer, WeekStat> weekEntry : repoEntry.getValue().entrySet()) {
-                    int year = weekEntry.getKey() / 100;
-                    int week = weekEntry.getKey() % 100;
-                    WeekStat ws = weekEntry.getValue();
+                for (int i = 0; i < weeks.size(); i++) {
+                    if (weeks.isEmpty(i)) continue;
+                    int yearWeek = weeks.yearWeek(i);
+                    int commits = weeks.commits(i);
+                    int additions = weeks.additions(i);
+                    int deletions = weeks.deletions(i);
                     weeklyList.add(CommitReportResponse.WeeklyDetail.builder()
                             .group(s.groupNumber != null ? "Group " + s.groupNumber : "")
                             .studentCode(s.student.getStudentCode())
                             .fullName(s.student.getUser().getFullName())
                             .githubUsername(s.student.getGithubUsername())
                             .repository(repoLabel)
-                            .year(year)
-                            .week(week)
-                            .commits(ws.commits)
-                            .additions(ws.additions)
-                            .deletions(ws.deletions)
+                            .year(yearWeek / 100)
+                            .week(yearWeek % 100)
+                            .commits(commits)
+                            .additions(additions)
+                            .deletions(deletions)
                             .build());
-                    repoCommits    += ws.commits;
-                    repoAdditions  += ws.additions;
-                    repoDeletions  += ws.deletions;
+                    repoCommits    += commits;
+                    repoAdditions  += additions;
+                    repoDeletions  += deletions;
                 }
 
                 summaryByRepo.add(CommitReportResponse.StudentRepoSummary.builder()
@@ -707,15 +1788,15 @@ public class GithubApiService {
         }
 
         return CommitReportResponse.builder()
-                .projectId(projectId)
+                .projectId(report.projectId)
                 .repositories(repos.stream()
                         .map(r -> r.getOwner() + "/" + r.getRepoName())
                         .collect(Collectors.toList()))
                 .period(CommitReportResponse.PeriodInfo.builder()
-                        .since(since != null ? since : "All")
-                        .until(until != null ? until : "Now")
+                        .since(report.since != null ? report.since : "All")
+                        .until(report.until != null ? report.until : "Now")
                         .build())
-                .generatedAt(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .generatedAt(report.generatedAt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
                 .diagnostic(diagnostic)
                 .summary(summaryList)
                 .summaryByRepository(summaryByRepo)
@@ -723,50 +1804,229 @@ public class GithubApiService {
                 .build();
     }
 
+    /** Repository status line of the CSV diagnostic section. */
+    private String csvDiagnostic(GithubRepository repo, RepoStatus status, boolean hasToken) {
+        if (status == null) {
+            return "(từ DB — đồng bộ lúc " + repo.getLastSyncedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                    + ", thêm refresh=true để lấy lại từ GitHub)";
+        }
+        if (status.errorMessage != null) {
+            String msg = status.errorMessage;
+            String error;
+            if (msg.contains("404")) {
+                error = "(ERROR 404: repo không tìm thấy hoặc là private — "
+                        + (hasToken ? "kiểm tra quyền của token" : "chưa set GITHUB_TOKEN env variable") + ")";
+            } else if (msg.contains("401") || msg.contains("403")) {
+                error = "(ERROR " + (msg.contains("401") ? "401" : "403") + ": token không hợp lệ hay hết hạn — kiểm tra GITHUB_TOKEN)";
+            } else {
+                error = "(ERROR: " + msg + ")";
+            }
+            return status.skippedUntil == null ? error : error + " [lỗi đã ghi nhớ — không gọi GitHub đến "
+                    + status.skippedUntil.format(DateTimeFormatter.ofPattern("HH:mm")) + ", thêm refresh=true để thử lại]";
+        }
+        if (status.incremental) {
+            return "(+" + status.newCommits + " commit mới kể từ lần đồng bộ trước)";
+        } else if (!status.viaCommitsApi) {
+            return String.join(" | ", status.logins);
+        } else if (status.logins.isEmpty()) {
+            return hasToken
+                    ? "(still computing — gọi lại sau 30s để có đủ additions/deletions)"
+                    : "(chưa set GITHUB_TOKEN — set env variable GITHUB_TOKEN rồi restart server)";
+        }
+        return String.join(" | ", status.logins) + " [via /commits API — additions/deletions=0, gọi lại sau để có đủ data]";
+    }
+
+    /** Repository status of the JSON diagnostic block. */
+    private String jsonDiagnostic(GithubRepository repo, RepoStatus status, boolean hasToken) {
+        if (status == null) {
+            return "từ DB — đồng bộ lúc " + repo.getLastSyncedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        }
+        if (status.errorMessage != null) {
+            String msg = status.errorMessage;
+            String error;
+            if (msg.contains("404")) {
+                error = "ERROR 404: repo không tìm thấy hoặc là private";
+            } else if (msg.contains("401") || msg.contains("403")) {
+                error = "ERROR " + (msg.contains("401") ? "401" : "403") + ": token không hợp lệ hay hết hạn";
+            } else {
+                error = "ERROR: " + msg;
+            }
+            return status.skippedUntil == null ? error : error + " (lỗi đã ghi nhớ — bỏ qua đến "
+                    + status.skippedUntil.format(DateTimeFormatter.ofPattern("HH:mm")) + ")";
+        }
+        if (status.incremental) {
+            return "+" + status.newCommits + " commit mới kể từ lần đồng bộ trước";
+        } else if (!status.viaCommitsApi) {
+            return String.join(", ", status.logins);
+        } else if (status.logins.isEmpty()) {
+            return hasToken
+                    ? "still computing — gọi lại sau 30s"
+                    : "chưa set GITHUB_TOKEN — set env variable rồi restart server";
+        }
+        return String.join(", ", status.logins) + " [via /commits API — additions/deletions=0]";
+    }
+
     // =========================================================================
-    //  Utilities
+    //  Course report rendering
     // =========================================================================
 
-    private String escapeCsv(String value) {
-        if (value == null) return "";
-        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
-            return "\"" + value.replace("\"", "\"\"") + "\"";
+    private void writeCourseCsv(
+            OutputStream out,
+            CourseReport report) throws IOException {
+
+        String since = report.since;
+        String until = report.until;
+        PrintWriter w = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+
+        // ---- Metadata ----
+        w.println("# GitHub Commit Report (Course)");
+        w.println("# Course:," + escapeCsv(report.course.getCourseCode() + " - " + report.course.getCourseName()));
+        w.println("# Period:," + (since != null ? since : "All") + " to " + (until != null ? until : "Now"));
+        w.println("# Generated:," + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        w.println("# GitHub Token configured: " + (report.hasToken ? "YES" : "NO — set GITHUB_TOKEN env variable"));
+        w.println();
+
+        // ---- Repositories ----
+        w.println("=== Repositories ===");
+        w.println("Group,Project Code,Repository,Status");
+        for (GithubRepository repo : report.repos) {
+            GroupStats group = report.groups.get(repo.getProject().getProjectId());
+            w.println(String.join(",",
+                    escapeCsv(groupLabel(group.groupNumber)),
+                    escapeCsv(group.project.getProjectCode()),
+                    escapeCsv(repo.getOwner() + "/" + repo.getRepoName()),
+                    escapeCsv(report.repoStatus.get(repo.getRepoId()))));
+        }
+        w.println();
+        w.flush();
+
+        List<GroupStats> groups = report.sortedGroups();
+
+        // ---- Group summary ----
+        w.println("=== Group Summary (Tổng hợp theo nhóm) ===");
+        w.println("Group,Project Code,Project Name,Members,Active Members,Repositories,Total Commits,Total Additions,Total Deletions");
+        for (GroupStats g : groups) {
+            w.println(String.join(",",
+                    escapeCsv(groupLabel(g.groupNumber)),
+                    escapeCsv(g.project.getProjectCode()),
+                    escapeCsv(g.project.getProjectName()),
+                    String.valueOf(g.memberCount),
+                    String.valueOf(g.activeMemberCount()),
+                    escapeCsv(String.join(" | ", g.repositories)),
+                    String.valueOf(g.totalCommits()),
+                    String.valueOf(g.totalAdditions()),
+                    String.valueOf(g.totalDeletions())));
+        }
+        w.println();
+
+        // ---- Student summary ----
+        w.println("=== Student Summary (Tổng hợp theo sinh viên) ===");
+        w.println("Group,Project Code,Student Code,Full Name,GitHub Username,Role,Total Commits,Total Additions,Total Deletions,Avg Commits/Week");
+        for (GroupStats g : groups) {
+            for (StudentStats s : g.sortedMembers()) {
+                int weekCount = s.activeWeeks();
+                double avgCommitsPerWeek = weekCount > 0 ? (double) s.totalCommits / weekCount : 0.0;
+                w.println(String.join(",",
+                        escapeCsv(groupLabel(g.groupNumber)),
+                        escapeCsv(g.project.getProjectCode()),
+                        escapeCsv(s.student.getStudentCode()),
+                        escapeCsv(s.student.getUser().getFullName()),
+                        escapeCsv(s.student.getGithubUsername()),
+                        escapeCsv(s.roleInProject != null ? s.roleInProject : ""),
+                        String.valueOf(s.totalCommits),
+                        String.valueOf(s.totalAdditions),
+                        String.valueOf(s.totalDeletions),
+                        String.format("%.2f", avgCommitsPerWeek)));
+            }
         }
-        return value;
-    }
 
-    private int toInt(Object obj) {
-        if (obj == null) return 0;
-        if (obj instanceof Number) return ((Number) obj).intValue();
-        try { return Integer.parseInt(obj.toString()); } catch (Exception e) { return 0; }
+        w.flush();
+        if (w.checkError()) {
+            throw new IOException("Failed to write CSV report for course " + report.course.getCourseId());
+        }
     }
 
-    private long toLong(Object obj) {
-        if (obj == null) return 0L;
-        if (obj instanceof Number) return ((Number) obj).longValue();
-        try { return Long.parseLong(obj.toString()); } catch (Exception e) { return 0L; }
+    private CourseCommitReportResponse buildCourseJsonReport(CourseReport report) {
+        List<CourseCommitReportResponse.RepoStatus> repoStatuses = new ArrayList<>();
+        for (GithubRepository repo : report.repos) {
+            GroupStats group = report.groups.get(repo.getProject().getProjectId());
+            repoStatuses.add(CourseCommitReportResponse.RepoStatus.builder()
+                    .group(groupLabel(group.groupNumber))
+                    .projectCode(group.project.getProjectCode())
+                    .repository(repo.getOwner() + "/" + repo.getRepoName())
+                    .status(report.repoStatus.get(repo.getRepoId()))
+                    .build());
+        }
+
+        List<CourseCommitReportResponse.GroupSummary> groupSummaries = new ArrayList<>();
+        List<CommitReportResponse.StudentSummary> studentSummaries = new ArrayList<>();
+        for (GroupStats g : report.sortedGroups()) {
+            groupSummaries.add(CourseCommitReportResponse.GroupSummary.builder()
+                    .group(groupLabel(g.groupNumber))
+                    .projectId(g.project.getProjectId())
+                    .projectCode(g.project.getProjectCode())
+                    .projectName(g.project.getProjectName())
+                    .memberCount(g.memberCount)
+                    .activeMemberCount(g.activeMemberCount())
+                    .repositories(g.repositories)
+                    .totalCommits(g.totalCommits())
+                    .totalAdditions(g.totalAdditions())
+                    .totalDeletions(g.totalDeletions())
+                    .build());
+
+            for (StudentStats s : g.sortedMembers()) {
+                int weekCount = s.activeWeeks();
+                double avgCommitsPerWeek = weekCount > 0 ? (double) s.totalCommits / weekCount : 0.0;
+                studentSummaries.add(CommitReportResponse.StudentSummary.builder()
+                        .group(groupLabel(g.groupNumber))
+                        .studentCode(s.student.getStudentCode())
+                        .fullName(s.student.getUser().getFullName())
+                        .githubUsername(s.student.getGithubUsername())
+                        .role(s.roleInProject != null ? s.roleInProject : "")
+                        .totalCommits(s.totalCommits)
+                        .totalAdditions(s.totalAdditions)
+                        .totalDeletions(s.totalDeletions)
+                        .avgCommitsPerWeek(Math.round(avgCommitsPerWeek * 100.0) / 100.0)
+                        .build());
+            }
+        }
+
+        return CourseCommitReportResponse.builder()
+                .courseId(report.course.getCourseId())
+                .courseCode(report.course.getCourseCode())
+                .courseName(report.course.getCourseName())
+                .period(CommitReportResponse.PeriodInfo.builder()
+                        .since(report.since != null ? report.since : "All")
+                        .until(report.until != null ? report.until : "Now")
+                        .build())
+                .generatedAt(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .githubTokenConfigured(report.hasToken)
+                .repositories(repoStatuses)
+                .groups(groupSummaries)
+                .students(studentSummaries)
+                .build();
     }
 
     // =========================================================================
-    //  Inner helper classes
+    //  Utilities
     // =========================================================================
 
-    private static class WeekStat {
-        int commits;
-        int additions;
-        int deletions;
-
-        WeekStat(int commits, int additions, int deletions) {
-            this.commits = commits;
-            this.additions = additions;
-            this.deletions = deletions;
-        }
+    private String groupLabel(Integer groupNumber) {
+        return groupNumber != null ? "Group " + groupNumber : "";
+    }
 
-        static WeekStat add(WeekStat a, WeekStat b) {
-            return new WeekStat(a.commits + b.commits, a.additions + b.additions, a.deletions + b.deletions);
+    private String escapeCsv(String value) {
+        if (value == null) return "";
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
         }
+        return value;
     }
 
+    // =========================================================================
+    //  Inner helper classes
+    // =========================================================================
+
     private static class StudentStats {
         final Student student;
         final String roleInProject;
@@ -774,14 +2034,178 @@ public class GithubApiService {
         int totalCommits = 0;
         int totalAdditions = 0;
         int totalDeletions = 0;
-        // repoId → (yearWeek → WeekStat)
-        final Map<Integer, TreeMap<Integer, WeekStat>> weeklyDetails = new LinkedHashMap<>();
+        // repoId → weekly buckets of that repo
+        final Map<Integer, WeekBuckets> weeklyDetails = new LinkedHashMap<>();
 
         StudentStats(Student student, String roleInProject, Integer groupNumber) {
             this.student = student;
             this.roleInProject = roleInProject;
             this.groupNumber = groupNumber;
         }
+
+        void merge(StudentStats other) {
+            totalCommits   += other.totalCommits;
+            totalAdditions += other.totalAdditions;
+            totalDeletions += other.totalDeletions;
+            other.weeklyDetails.forEach((repoId, weeks) -> weeksOf(repoId).addAll(weeks));
+        }
+
+        WeekBuckets weeksOf(Integer repoId) {
+            return weeklyDetails.computeIfAbsent(repoId, k -> new WeekBuckets());
+        }
+
+        /** Weeks with at least one commit, summed over repositories. */
+        int activeWeeks() {
+            int n = 0;
+            for (WeekBuckets weeks : weeklyDetails.values()) n += weeks.activeWeeks();
+            return n;
+        }
+    }
+
+    private record ReportKey(Integer projectId, String since, String until) { }
+
+    private record FlightKey(ReportKey report, boolean refresh, GithubRateLimiter.Priority priority) { }
+
+    /**
+     * Everything a project report renders, aggregated once and shared by the CSV and
+     * JSON renderers (and by concurrent requests via the report cache), so it must not
+     * be modified after {@link #aggregateProjectReport} returns.
+     */
+    private static class ProjectReport {
+        final Integer projectId;
+        final String since;
+        final String until;
+        final List<GithubRepository> repos;
+        final Map<String, StudentStats> statsByLogin;
+        final boolean hasToken;
+        final long dataVersion;
+        final LocalDateTime generatedAt;
+        // Repositories refetched for this report; absent ones were served from the DB
+        final Map<Integer, RepoStatus> repoStatus = new HashMap<>();
+
+        ProjectReport(Integer projectId, String since, String until, List<GithubRepository> repos,
+                      Map<String, StudentStats> statsByLogin, boolean hasToken, long dataVersion,
+                      LocalDateTime generatedAt) {
+            this.projectId = projectId;
+            this.since = since;
+            this.until = until;
+            this.repos = repos;
+            this.statsByLogin = statsByLogin;
+            this.hasToken = hasToken;
+            this.dataVersion = dataVersion;
+            this.generatedAt = generatedAt;
+        }
+    }
+
+    /** What a refetch of one repository reported, without its per-repo stats copy. */
+    private static class RepoStatus {
+        final String errorMessage;
+        final boolean incremental;
+        final int newCommits;
+        final boolean viaCommitsApi;
+        final List<String> logins;
+        final LocalDateTime skippedUntil;
+
+        RepoStatus(RepoFetchResult result) {
+            this.errorMessage = result.errorMessage;
+            this.skippedUntil = result.skippedUntil;
+            this.incremental = result.incremental;
+            this.newCommits = result.newCommits;
+            this.viaCommitsApi = result.viaCommitsApi;
+            this.logins = result.logins;
+        }
+    }
+
+    /** Everything a course report renders: groups keyed by projectId, students keyed by login. */
+    private static class CourseReport {
+        final Course course;
+        // null when the period is open on that side
+        final String since;
+        final String until;
+        final List<GithubRepository> repos;
+        final boolean hasToken;
+        final Map<String, StudentStats> statsByLogin = new LinkedHashMap<>();
+        final Map<Integer, GroupStats> groups = new LinkedHashMap<>();
+        final Map<Integer, String> repoStatus = new HashMap<>();
+
+        CourseReport(Course course, String since, String until, List<GithubRepository> repos, boolean hasToken) {
+            this.course = course;
+            this.since = since;
+            this.until = until;
+            this.repos = repos;
+            this.hasToken = hasToken;
+        }
+
+        /** Groups by group number (unnumbered last), then project code. */
+        List<GroupStats> sortedGroups() {
+            return groups.values().stream()
+                    .sorted(Comparator.comparing((GroupStats g) -> g.groupNumber != null ? g.groupNumber : Integer.MAX_VALUE)
+                            .thenComparing(g -> g.project.getProjectCode(), Comparator.nullsLast(Comparator.naturalOrder())))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /** One group (project) of a course; totals are summed over its members. */
+    private static class GroupStats {
+        final Project project;
+        Integer groupNumber;
+        int memberCount;
+        final List<StudentStats> members = new ArrayList<>();
+        final List<String> repositories = new ArrayList<>();
+
+        GroupStats(Project project) {
+            this.project = project;
+        }
+
+        List<StudentStats> sortedMembers() {
+            return members.stream()
+                    .sorted(Comparator.comparing(s -> s.student.getStudentCode()))
+                    .collect(Collectors.toList());
+        }
+
+        int activeMemberCount() {
+            return (int) members.stream().filter(s -> s.totalCommits > 0).count();
+        }
+
+        int totalCommits() {
+            return members.stream().mapToInt(s -> s.totalCommits).sum();
+        }
+
+        int totalAdditions() {
+            return members.stream().mapToInt(s -> s.totalAdditions).sum();
+        }
+
+        int totalDeletions() {
+            return members.stream().mapToInt(s -> s.totalDeletions).sum();
+        }
+    }
+
+    /** Outcome of fetching one repository, accumulated in isolation from the other repos. */
+    private static class RepoFetchResult {
+        final GithubRepository repo;
+        final Map<String, StudentStats> statsByLogin;
+        // stats/contributors logins, or matched student logins when viaCommitsApi
+        List<String> logins = Collections.emptyList();
+        boolean viaCommitsApi;
+        // only the commits after the repo's cursor were fetched
+        boolean incremental;
+        int newCommits;
+        // cursor to store once the result is persisted
+        String cursorSha;
+        LocalDateTime cursorAt;
+        String cursorEtag;
+        // commits seen one by one (/commits fallback, incremental sync), for commit_details
+        final List<CommitDetail> commitDetails = new ArrayList<>();
+        String errorMessage;
+        // HTTP status of the failure when known, for the circuit breaker
+        Integer errorStatus;
+        // not fetched: the circuit breaker remembers errorMessage until then
+        LocalDateTime skippedUntil;
+
+        RepoFetchResult(GithubRepository repo, Map<String, StudentStats> statsByLogin) {
+            this.repo = repo;
+            this.statsByLogin = statsByLogin;
+        }
     }
 }
 
@@ -0,0 +1,125 @@
+package com.edutool.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Permanent store of per-commit line stats keyed by commit SHA. A SHA names
+ * immutable content, so an entry never needs revalidation and is shared by every
+ * repository (forks included) and project that contains the commit.
+ *
+ * <p>Two tiers: an in-memory LRU of {@code github.commit-cache.memory-entries}
+ * over one small file per SHA under {@code github.commit-cache.dir}, sharded by
+ * the first two hex digits ({@code <dir>/ab/abcdef…}). Files are written to a
+ * temp file and moved into place, like {@link GithubResponseCache}. Only the
+ * numbers the reports use are kept, not GitHub's response with its patches.
+ */
+@Slf4j
+@Component
+public class GithubCommitCache {
+
+    // SHA-1 or SHA-256 object names; anything else never reaches the file system
+    private static final Pattern SHA = Pattern.compile("[0-9a-f]{40}|[0-9a-f]{64}");
+
+    @Value("${github.commit-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${github.commit-cache.dir:${java.io.tmpdir}/edutool/github-commits}")
+    private Path cacheDir;
+
+    @Value("${github.commit-cache.memory-entries:20000}")
+    private int memoryEntries;
+
+    private final Map<String, CommitStats> memory = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CommitStats> eldest) {
+            return size() > memoryEntries;
+        }
+    };
+
+    public CommitStats get(String sha) {
+        String key = keyOf(sha);
+        if (key == null) return null;
+        synchronized (memory) {
+            CommitStats stats = memory.get(key);
+            if (stats != null) return stats;
+        }
+
+        try {
+            String[] fields = Files.readString(fileOf(key), StandardCharsets.US_ASCII).trim().split(",");
+            CommitStats stats = new CommitStats(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                    Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+            synchronized (memory) {
+                memory.put(key, stats);
+            }
+            return stats;
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException | RuntimeException ex) {
+            log.debug("Could not read cached stats of commit {}: {}", sha, ex.getMessage());
+            return null;
+        }
+    }
+
+    public void put(String sha, CommitStats stats) {
+        String key = keyOf(sha);
+        if (key == null) return;
+        synchronized (memory) {
+            memory.put(key, stats);
+        }
+
+        Path file = fileOf(key);
+        if (Files.exists(file)) return;
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.writeString(tmp, stats.additions + "," + stats.deletions + "," + stats.filesChanged + "," + stats.parents,
+                    StandardCharsets.US_ASCII);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Could not cache stats of commit {}: {}", sha, ex.getMessage());
+        }
+    }
+
+    /** Lower-case SHA, or {@code null} when caching is off or the value is not a commit SHA. */
+    private String keyOf(String sha) {
+        if (!enabled || sha == null) return null;
+        String key = sha.toLowerCase(Locale.ROOT);
+        return SHA.matcher(key).matches() ? key : null;
+    }
+
+    private Path fileOf(String key) {
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    public static class CommitStats {
+        final int additions;
+        final int deletions;
+        final int filesChanged;
+        // more than one for a merge commit
+        final int parents;
+
+        CommitStats(int additions, int deletions, int filesChanged) {
+            this(additions, deletions, filesChanged, 1);
+        }
+
+        CommitStats(int additions, int deletions, int filesChanged, int parents) {
+            this.additions = additions;
+            this.deletions = deletions;
+            this.filesChanged = filesChanged;
+            this.parents = parents;
+        }
+    }
+}
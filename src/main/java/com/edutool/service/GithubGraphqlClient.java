@@ -0,0 +1,200 @@
+package com.edutool.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the default-branch history of several repositories per request through
+ * the GitHub GraphQL API ({@code POST <github.api.base-url>/graphql}). Each
+ * repository is an aliased field of one query and every commit comes with its
+ * author login, dates and line counts, so a page of {@code github.graphql.page-size}
+ * commits of up to {@code github.graphql.repos-per-query} repositories costs a
+ * single call instead of one call per repository page plus one per commit.
+ *
+ * <p>Repositories whose history has more pages are queried again, alone with the
+ * other unfinished ones, until every history is exhausted or has reached its stop
+ * commit. Pointing {@code github.api.base-url} at a local stub serves both this
+ * client and the REST calls.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GithubGraphqlClient {
+
+    private static final String HISTORY_FIELDS = """
+            pageInfo { hasNextPage endCursor }
+            nodes {
+              oid authoredDate committedDate additions deletions changedFilesIfAvailable
+              message url author { user { login } } parents { totalCount }
+            }""";
+
+    private final GithubHttpClient githubHttpClient;
+    private final ObjectMapper objectMapper;
+
+    @Value("${github.api.base-url:https://api.github.com}")
+    private String apiBaseUrl;
+
+    @Value("${github.graphql.page-size:100}")
+    private int pageSize;
+
+    /**
+     * Fetches the histories, newest commit first.
+     *
+     * @return one {@link History} per request, in request order; a repository GitHub
+     *         could not resolve gets {@link History#error} instead of commits
+     * @throws org.springframework.web.client.RestClientResponseException when the whole call fails
+     */
+    public List<History> fetchHistories(List<HistoryRequest> requests, GithubRateLimiter.Priority priority) {
+        List<History> histories = new ArrayList<>();
+        requests.forEach(r -> histories.add(new History()));
+        String[] cursors = new String[requests.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) pending.add(i);
+
+        while (!pending.isEmpty()) {
+            Map<String, Object> response = query(requests, cursors, pending, priority);
+            Map<String, Object> data = asMap(response.get("data"));
+            Map<String, String> errors = errorsByAlias(response.get("errors"));
+
+            List<Integer> next = new ArrayList<>();
+            for (int i : pending) {
+                String alias = "r" + i;
+                History history = histories.get(i);
+                Map<String, Object> repository = data != null ? asMap(data.get(alias)) : null;
+                if (repository == null) {
+                    history.error = errors.getOrDefault(alias, "no data returned for " + requests.get(i).label());
+                    continue;
+                }
+                Map<String, Object> branch = asMap(repository.get("defaultBranchRef"));
+                Map<String, Object> target = branch != null ? asMap(branch.get("target")) : null;
+                Map<String, Object> page = target != null ? asMap(target.get("history")) : null;
+                if (page == null) continue; // empty repository
+
+                if (readPage(page, requests.get(i), history)) continue;
+                Map<String, Object> pageInfo = asMap(page.get("pageInfo"));
+                if (pageInfo != null && Boolean.TRUE.equals(pageInfo.get("hasNextPage"))) {
+                    cursors[i] = (String) pageInfo.get("endCursor");
+                    next.add(i);
+                }
+            }
+            pending = next;
+        }
+        return histories;
+    }
+
+    /** @return {@code true} once the request's stop commit was reached */
+    private boolean readPage(Map<String, Object> page, HistoryRequest request, History history) {
+        for (Object node : (List<?>) page.getOrDefault("nodes", List.of())) {
+            Map<String, Object> commit = asMap(node);
+            String sha = (String) commit.get("oid");
+            if (sha.equals(request.stopAtSha)) {
+                history.reachedStop = true;
+                return true;
+            }
+            Map<String, Object> author = asMap(commit.get("author"));
+            Map<String, Object> user = author != null ? asMap(author.get("user")) : null;
+
+            HistoryCommit c = new HistoryCommit();
+            c.sha = sha;
+            c.authorLogin = user != null ? (String) user.get("login") : null;
+            c.authoredAt = Instant.parse((String) commit.get("authoredDate"));
+            c.committedAt = Instant.parse((String) commit.get("committedDate"));
+            c.additions = ((Number) commit.get("additions")).intValue();
+            c.deletions = ((Number) commit.get("deletions")).intValue();
+            c.changedFiles = commit.get("changedFilesIfAvailable") instanceof Number n ? n.intValue() : null;
+            c.message = (String) commit.get("message");
+            c.url = (String) commit.get("url");
+            Map<String, Object> parents = asMap(commit.get("parents"));
+            c.parents = parents != null && parents.get("totalCount") instanceof Number n ? n.intValue() : 1;
+            history.commits.add(c);
+        }
+        return false;
+    }
+
+    private Map<String, Object> query(
+            List<HistoryRequest> requests, String[] cursors, List<Integer> pending,
+            GithubRateLimiter.Priority priority) {
+
+        StringBuilder params = new StringBuilder();
+        StringBuilder fields = new StringBuilder();
+        Map<String, Object> variables = new LinkedHashMap<>();
+        for (int i : pending) {
+            HistoryRequest request = requests.get(i);
+            params.append(" $owner").append(i).append(": String! $name").append(i).append(": String!")
+                  .append(" $after").append(i).append(": String $since").append(i).append(": GitTimestamp");
+            fields.append("r").append(i).append(": repository(owner: $owner").append(i)
+                  .append(", name: $name").append(i).append(") { defaultBranchRef { target { ... on Commit {")
+                  .append(" history(first: ").append(pageSize).append(", after: $after").append(i)
+                  .append(", since: $since").append(i).append(") {").append(HISTORY_FIELDS).append(" } } } } }\n");
+            variables.put("owner" + i, request.owner);
+            variables.put("name" + i, request.name);
+            variables.put("after" + i, cursors[i]);
+            variables.put("since" + i, request.since != null ? request.since.toString() : null);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("query", "query(" + params.toString().trim() + ") {\n" + fields + "}");
+        body.put("variables", variables);
+
+        GithubHttpClient.GithubResponse response = githubHttpClient.postJson(
+                apiBaseUrl + "/graphql", objectMapper.writeValueAsBytes(body), priority);
+        return objectMapper.readValue(response.body, new TypeReference<Map<String, Object>>() {});
+    }
+
+    /** Maps GraphQL errors to the alias they belong to, worded like the REST errors ("404 …"). */
+    private Map<String, String> errorsByAlias(Object errors) {
+        Map<String, String> byAlias = new LinkedHashMap<>();
+        if (!(errors instanceof List<?> list)) return byAlias;
+        for (Object e : list) {
+            Map<String, Object> error = asMap(e);
+            List<?> path = (List<?>) error.get("path");
+            String message = (String) error.get("message");
+            if ("NOT_FOUND".equals(error.get("type"))) message = "404 Not Found: " + message;
+            if (path != null && !path.isEmpty()) {
+                byAlias.putIfAbsent(String.valueOf(path.get(0)), message);
+            } else {
+                log.warn("GitHub GraphQL error: {}", message);
+            }
+        }
+        return byAlias;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return value instanceof Map<?, ?> ? (Map<String, Object>) value : null;
+    }
+
+    /** History of one repository; {@code since}/{@code stopAtSha} narrow it to the commits after a cursor. */
+    public static class HistoryRequest {
+        final String owner;
+        final String name;
+        final Instant since;
+        final String stopAtSha;
+
+        HistoryRequest(String owner, String name, Instant since, String stopAtSha) {
+            this.owner = owner;
+            this.name = name;
+            this.since = since;
+            this.stopAtSha = stopAtSha;
+        }
+
+        String label() {
+            return owner + "/" + name;
+        }
+    }
+
+    public static class History {
+        final List<HistoryCommit> commits = new ArrayList<>();
+        boolean reachedStop;
+        String error;
+    }
+}
@@ -0,0 +1,177 @@
+package com.edutool.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+/**
+ * Single entry point for outbound GitHub REST calls. Schedules each call through
+ * {@link GithubRateLimiter}, adds the API version and token headers and
+ * revalidates against {@link GithubResponseCache}: when a cached ETag /
+ * Last-Modified exists the request is sent conditionally and a
+ * {@code 304 Not Modified} is served from the cached body.
+ *
+ * <p>4xx/5xx responses surface as {@code RestClientResponseException}s, exactly
+ * as with a plain {@link RestTemplate}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GithubHttpClient {
+
+    private final RestTemplate restTemplate;
+    private final GithubResponseCache responseCache;
+    private final GithubRateLimiter rateLimiter;
+    private final GithubTokenPool tokenPool;
+
+    public boolean hasToken() {
+        return tokenPool.hasTokens();
+    }
+
+    /**
+     * Sends a GET after taking a permit from {@link GithubRateLimiter}; the
+     * response's rate limit headers are fed back whether it succeeded or not.
+     * A 401 or a rate limit on the token moves the call to another token once, provided
+     * one is usable right away; every other error is thrown to the caller.
+     */
+    public GithubResponse get(String url, GithubRateLimiter.Priority priority) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Accept", "application/vnd.github.v3+json");
+        headers.set("X-GitHub-Api-Version", "2022-11-28");
+
+        GithubResponseCache.CachedResponse cached = responseCache.get(url);
+        if (cached != null) {
+            if (cached.etag != null) {
+                headers.set(HttpHeaders.IF_NONE_MATCH, cached.etag);
+            } else {
+                headers.set(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified);
+            }
+        }
+
+        ResponseEntity<byte[]> response = exchange(url, HttpMethod.GET, headers, null, priority, true);
+        int status = response.getStatusCode().value();
+
+        if (status == 304 && cached != null) {
+            log.debug("GitHub 304 Not Modified, serving cached body for {}", url);
+            return new GithubResponse(200, cached.body, response.getHeaders(), true);
+        }
+        if (status == 200) {
+            responseCache.put(url, response.getHeaders().getETag(),
+                    response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED), response.getBody());
+        }
+        return new GithubResponse(status, response.getBody(), response.getHeaders(), false);
+    }
+
+    /**
+     * Conditional GET against an ETag the caller stored itself (e.g. a repository's
+     * sync cursor), bypassing {@link GithubResponseCache}. A {@code 304} is returned
+     * as is, with a {@code null} body.
+     */
+    public GithubResponse getIfNoneMatch(String url, String etag, GithubRateLimiter.Priority priority) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Accept", "application/vnd.github.v3+json");
+        headers.set("X-GitHub-Api-Version", "2022-11-28");
+        if (etag != null) {
+            headers.set(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        ResponseEntity<byte[]> response = exchange(url, HttpMethod.GET, headers, null, priority, true);
+        int status = response.getStatusCode().value();
+        return new GithubResponse(status, status == 304 ? null : response.getBody(), response.getHeaders(), false);
+    }
+
+    /** POSTs a JSON body (GraphQL queries); never cached. */
+    public GithubResponse postJson(String url, byte[] body, GithubRateLimiter.Priority priority) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        ResponseEntity<byte[]> response = exchange(url, HttpMethod.POST, headers, body, priority, true);
+        return new GithubResponse(response.getStatusCode().value(), response.getBody(), response.getHeaders(), false);
+    }
+
+    private ResponseEntity<byte[]> exchange(
+            String url, HttpMethod method, HttpHeaders headers, byte[] body,
+            GithubRateLimiter.Priority priority, boolean retryOnReject) {
+
+        GithubTokenPool.Token token = rateLimiter.acquire(priority);
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.addAll(headers);
+        if (token.value != null) {
+            requestHeaders.setBearerAuth(token.value);
+        }
+
+        try {
+            ResponseEntity<byte[]> response = restTemplate.exchange(
+                    url, method, new HttpEntity<>(body, requestHeaders), byte[].class);
+            rateLimiter.update(token, coreQuotaHeaders(response.getHeaders()));
+            return response;
+        } catch (RestClientResponseException ex) {
+            rateLimiter.update(token, coreQuotaHeaders(ex.getResponseHeaders()));
+            if (isTokenRejection(ex, token)
+                    && retryOnReject && token.value != null && rateLimiter.hasUsableToken(priority)) {
+                return exchange(url, method, headers, body, priority, false);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Takes the token out of rotation when the error is about the token itself: 401, the
+     * hourly quota running out, or the secondary rate limit. Other 403s (SAML enforcement,
+     * "resource not accessible by personal access token") concern one repository or
+     * organisation and are left to {@link GithubRepoCircuitBreaker}.
+     *
+     * @return whether another token may succeed where this one failed
+     */
+    private boolean isTokenRejection(RestClientResponseException ex, GithubTokenPool.Token token) {
+        int status = ex.getStatusCode().value();
+        if (status == 401) {
+            rateLimiter.revoke(token);
+            return true;
+        }
+        if (status != 403 && status != 429) return false;
+
+        HttpHeaders headers = ex.getResponseHeaders();
+        if (headers != null && "0".equals(headers.getFirst("X-RateLimit-Remaining"))) {
+            return true; // quota exhausted; update() has recorded the reset already
+        }
+        long retryAfterMs = GithubRetryPolicy.retryAfterMillis(headers);
+        if (retryAfterMs >= 0 || ex.getResponseBodyAsString().contains("secondary rate limit")) {
+            rateLimiter.park(token, retryAfterMs);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * GraphQL calls draw on a separate points budget whose {@code X-RateLimit-*} headers
+     * must not overwrite the REST quota the pool tracks; they are dropped here.
+     */
+    private HttpHeaders coreQuotaHeaders(HttpHeaders headers) {
+        if (headers == null) return null;
+        String resource = headers.getFirst("X-RateLimit-Resource");
+        return resource == null || "core".equals(resource) ? headers : null;
+    }
+
+    public static class GithubResponse {
+        final int status;
+        final byte[] body;
+        final HttpHeaders headers;
+        final boolean fromCache;
+
+        GithubResponse(int status, byte[] body, HttpHeaders headers, boolean fromCache) {
+            this.status = status;
+            this.body = body;
+            this.headers = headers;
+            this.fromCache = fromCache;
+        }
+    }
+}
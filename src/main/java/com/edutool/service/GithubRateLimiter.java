@@ -0,0 +1,186 @@
+package com.edutool.service;
+
+import com.edutool.dto.response.GithubRateLimitResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Central scheduler for outbound GitHub calls. Every request made by
+ * {@link GithubHttpClient} first takes a permit here — which also picks the
+ * {@link GithubTokenPool} token with the most remaining quota — and every
+ * response feeds its {@code X-RateLimit-*} headers back, so the whole
+ * application shares one view of the hourly quota.
+ *
+ * <ul>
+ *   <li><b>Interactive</b> calls (a lecturer waiting on a report) may use a token
+ *       down to {@code github.rate-limit.interactive-reserve}.</li>
+ *   <li><b>Background</b> calls (queued jobs, sync) stop at
+ *       {@code github.rate-limit.background-reserve}, yield while interactive
+ *       calls are waiting, and are paced evenly over the rest of the window once
+ *       the pool's remaining quota drops below {@code github.rate-limit.pacing-threshold}.</li>
+ * </ul>
+ * Background callers that hit a reserve on every token wait until the next window
+ * reset; interactive callers wait at most {@code github.rate-limit.interactive-max-wait}
+ * and then fail, rather than holding a request thread for up to an hour.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GithubRateLimiter {
+
+    public enum Priority { INTERACTIVE, BACKGROUND }
+
+    private final GithubTokenPool tokenPool;
+
+    @Value("${github.rate-limit.interactive-reserve:20}")
+    private int interactiveReserve;
+
+    @Value("${github.rate-limit.background-reserve:500}")
+    private int backgroundReserve;
+
+    @Value("${github.rate-limit.pacing-threshold:1500}")
+    private int pacingThreshold;
+
+    @Value("${github.rate-limit.interactive-max-wait:PT5S}")
+    private Duration interactiveMaxWait;
+
+    private long nextBackgroundPermitAt;
+    private int waitingInteractive;
+    private int waitingBackground;
+
+    /**
+     * Blocks until a call with the given priority may be sent.
+     *
+     * @return the token to send the call with
+     * @throws IllegalStateException when interrupted while waiting, when every token has been
+     *         revoked, or when an interactive call would wait longer than {@code interactive-max-wait}
+     */
+    public synchronized GithubTokenPool.Token acquire(Priority priority) {
+        long giveUpAt = System.currentTimeMillis() + interactiveMaxWait.toMillis();
+        if (priority == Priority.INTERACTIVE) waitingInteractive++; else waitingBackground++;
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                GithubTokenPool.Token token = tokenPool.best(now);
+                long waitMs = computeWait(token, priority, now);
+                if (priority == Priority.INTERACTIVE && now + waitMs > giveUpAt) {
+                    throw new IllegalStateException("GitHub API quota exhausted, available again at "
+                            + LocalDateTime.ofInstant(Instant.ofEpochMilli(now + waitMs), ZoneId.systemDefault())
+                                    .format(DateTimeFormatter.ofPattern("HH:mm")));
+                }
+                if (waitMs <= 0) {
+                    tokenPool.consume(token);
+                    if (priority == Priority.BACKGROUND) {
+                        nextBackgroundPermitAt = now + pacingIntervalMs(now);
+                    }
+                    return token;
+                }
+                log.debug("GitHub rate limiter delaying {} call by {} ms", priority, waitMs);
+                // Wake up regularly: a response may have refreshed the quota in the meantime
+                wait(Math.min(waitMs, 1000));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for GitHub rate limit", ex);
+        } finally {
+            if (priority == Priority.INTERACTIVE) waitingInteractive--; else waitingBackground--;
+        }
+    }
+
+    /** Records the quota reported by GitHub for the token; safe to call with {@code null} headers. */
+    public synchronized void update(GithubTokenPool.Token token, HttpHeaders headers) {
+        tokenPool.update(token, headers);
+        notifyAll();
+    }
+
+    /** Drops a token that GitHub answered with 401 so the next permit uses another one. */
+    public synchronized void revoke(GithubTokenPool.Token token) {
+        tokenPool.revoke(token);
+        notifyAll();
+    }
+
+    /** Parks a token that hit the secondary rate limit; see {@link GithubTokenPool#park}. */
+    public synchronized void park(GithubTokenPool.Token token, long retryAfterMs) {
+        tokenPool.park(token, retryAfterMs);
+        notifyAll();
+    }
+
+    /** Whether some token could send a call of this priority right now, without waiting for a reset. */
+    public synchronized boolean hasUsableToken(Priority priority) {
+        GithubTokenPool.Token token = tokenPool.best(System.currentTimeMillis());
+        return token != null && (token.remaining < 0 || token.remaining > reserveOf(priority));
+    }
+
+    public synchronized GithubRateLimitResponse snapshot() {
+        long now = System.currentTimeMillis();
+        int limit = 0;
+        int remaining = tokenPool.totalRemaining(now);
+        List<GithubRateLimitResponse.TokenQuota> tokens = tokenPool.snapshot(now);
+        for (GithubRateLimitResponse.TokenQuota t : tokens) {
+            if ("DISABLED".equals(t.getStatus())) continue;
+            if (t.getLimit() < 0) { limit = -1; break; }
+            limit += t.getLimit();
+        }
+        long resetAt = tokenPool.nextRecoveryAt(now);
+        return GithubRateLimitResponse.builder()
+                .limit(limit)
+                .remaining(remaining)
+                .resetAt(resetAt != Long.MAX_VALUE
+                        ? LocalDateTime.ofInstant(Instant.ofEpochMilli(resetAt), ZoneId.systemDefault()) : null)
+                .secondsUntilReset(resetAt != Long.MAX_VALUE ? (resetAt - now) / 1000 : 0)
+                .interactiveReserve(interactiveReserve)
+                .backgroundReserve(backgroundReserve)
+                .backgroundPacingMs(pacingIntervalMs(now))
+                .waitingInteractive(waitingInteractive)
+                .waitingBackground(waitingBackground)
+                .tokens(tokens)
+                .build();
+    }
+
+    // =========================================================================
+    //  Scheduling rules – callers hold the monitor
+    // =========================================================================
+
+    private long computeWait(GithubTokenPool.Token token, Priority priority, long now) {
+        if (token == null) {
+            long recovery = tokenPool.nextRecoveryAt(now);
+            if (recovery == Long.MAX_VALUE) {
+                throw new IllegalStateException("All configured GitHub tokens were rejected – check GITHUB_TOKENS");
+            }
+            return recovery - now;
+        }
+        if (token.remaining < 0) return 0; // quota unknown yet – first response will tell
+
+        // token is the one with the most quota left, so every other token is at or below it
+        if (token.remaining <= reserveOf(priority)) {
+            return Math.max(tokenPool.nextRecoveryAt(now) - now, 1);
+        }
+        if (priority == Priority.BACKGROUND) {
+            if (waitingInteractive > 0) return 50;
+            if (now < nextBackgroundPermitAt) return nextBackgroundPermitAt - now;
+        }
+        return 0;
+    }
+
+    private int reserveOf(Priority priority) {
+        return priority == Priority.INTERACTIVE ? interactiveReserve : backgroundReserve;
+    }
+
+    /** Spreads the pool's quota above the interactive reserve evenly over the rest of the window. */
+    private long pacingIntervalMs(long now) {
+        int remaining = tokenPool.totalRemaining(now);
+        long resetAt = tokenPool.nextRecoveryAt(now);
+        if (remaining < 0 || remaining >= pacingThreshold || resetAt == Long.MAX_VALUE) return 0;
+        return (resetAt - now) / Math.max(1, remaining - interactiveReserve);
+    }
+}
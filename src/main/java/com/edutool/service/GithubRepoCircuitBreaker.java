@@ -0,0 +1,108 @@
+package com.edutool.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers failed fetches per owner/repo so reports stop calling a repository
+ * that is known to be broken and show the remembered reason instead.
+ *
+ * <ul>
+ *   <li><b>Access</b> failures (401, 403 other than rate limiting, 404, 410, 451) open
+ *       the breaker at once for {@code github.breaker.access-cooldown}: they do not go
+ *       away until someone fixes the URL, the visibility or the token.</li>
+ *   <li><b>Transient</b> failures (5xx, timeouts, rate limiting, I/O) open it only after
+ *       {@code github.breaker.transient-threshold} failures in a row, for
+ *       {@code github.breaker.transient-cooldown}.</li>
+ * </ul>
+ * Once the cooldown has passed the next fetch goes through; a success closes the
+ * breaker, another failure opens it again.
+ */
+@Slf4j
+@Component
+public class GithubRepoCircuitBreaker {
+
+    public enum FailureKind { ACCESS, TRANSIENT }
+
+    @Value("${github.breaker.access-cooldown:PT1H}")
+    private Duration accessCooldown;
+
+    @Value("${github.breaker.transient-cooldown:PT5M}")
+    private Duration transientCooldown;
+
+    @Value("${github.breaker.transient-threshold:3}")
+    private int transientThreshold;
+
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    /** The open breaker of the repository, or {@code null} when it may be fetched. */
+    public Open check(String owner, String repo) {
+        State state = states.get(keyOf(owner, repo));
+        if (state == null) return null;
+        synchronized (state) {
+            if (state.openUntil == null || !LocalDateTime.now().isBefore(state.openUntil)) return null;
+            return new Open(state.kind, state.reason, state.openUntil);
+        }
+    }
+
+    public void recordSuccess(String owner, String repo) {
+        states.remove(keyOf(owner, repo));
+    }
+
+    /**
+     * @param status HTTP status of the failure, or {@code null} when there was no response
+     */
+    public void recordFailure(String owner, String repo, Integer status, String reason) {
+        FailureKind kind = kindOf(status, reason);
+        State state = states.computeIfAbsent(keyOf(owner, repo), k -> new State());
+        synchronized (state) {
+            state.failures = state.kind == kind ? state.failures + 1 : 1;
+            state.kind = kind;
+            state.reason = reason;
+            if (kind == FailureKind.ACCESS || state.failures >= transientThreshold) {
+                state.openUntil = LocalDateTime.now().plus(kind == FailureKind.ACCESS ? accessCooldown : transientCooldown);
+                log.info("Circuit for {}/{} open until {} ({}): {}", owner, repo, state.openUntil, kind, reason);
+            }
+        }
+    }
+
+    static FailureKind kindOf(Integer status, String reason) {
+        if (status == null) return FailureKind.TRANSIENT;
+        boolean rateLimited = reason != null && reason.toLowerCase(Locale.ROOT).contains("rate limit");
+        return switch (status) {
+            case 401, 404, 410, 451 -> FailureKind.ACCESS;
+            case 403 -> rateLimited ? FailureKind.TRANSIENT : FailureKind.ACCESS;
+            default -> FailureKind.TRANSIENT;
+        };
+    }
+
+    private String keyOf(String owner, String repo) {
+        return (owner + "/" + repo).toLowerCase(Locale.ROOT);
+    }
+
+    private static class State {
+        FailureKind kind;
+        int failures;
+        String reason;
+        LocalDateTime openUntil;
+    }
+
+    public static class Open {
+        final FailureKind kind;
+        final String reason;
+        final LocalDateTime until;
+
+        Open(FailureKind kind, String reason, LocalDateTime until) {
+            this.kind = kind;
+            this.reason = reason;
+            this.until = until;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.edutool.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Disk-backed store of GitHub GET responses keyed by URL, used for conditional
+ * requests. Each entry keeps the {@code ETag} / {@code Last-Modified} validators
+ * next to the raw body, so a later {@code 304 Not Modified} can be answered
+ * locally — 304s cost no transfer and do not count against the rate limit.
+ *
+ * <p>Layout: one {@code <dir>/<sha256(url)>.entry} per URL holding the URL, the
+ * validators and the body. It is written to a temp file and moved into place, so
+ * a crash never leaves a half-written entry behind and concurrent writers of one
+ * URL never pair one response's validators with another's body.
+ *
+ * <p>Entries unused for {@code github.cache.max-age} are deleted, and when the
+ * directory grows past {@code github.cache.max-size} the least recently used
+ * entries go first; a hit refreshes the file's modification time.
+ */
+@Slf4j
+@Component
+public class GithubResponseCache {
+
+    private static final String SUFFIX = ".entry";
+
+    @Value("${github.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${github.cache.dir:${java.io.tmpdir}/edutool/github-cache}")
+    private Path cacheDir;
+
+    @Value("${github.cache.max-size:200MB}")
+    private DataSize maxSize;
+
+    @Value("${github.cache.max-age:P7D}")
+    private Duration maxAge;
+
+    // Bytes written since the last sweep counted onto its total; a sweep runs once it passes max-size
+    private final AtomicLong approxBytes = new AtomicLong();
+    private volatile long nextSweepAt;
+    private final ReentrantLock sweepLock = new ReentrantLock();
+
+    public CachedResponse get(String url) {
+        if (!enabled) return null;
+        Path file = cacheDir.resolve(keyOf(url) + SUFFIX);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (!url.equals(in.readUTF())) return null; // hash collision guard
+            String etag = emptyToNull(in.readUTF());
+            String lastModified = emptyToNull(in.readUTF());
+            byte[] body = in.readAllBytes();
+            touch(file);
+            return new CachedResponse(etag, lastModified, body);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            log.debug("Could not read cached GitHub response for {}: {}", url, ex.getMessage());
+            return null;
+        }
+    }
+
+    /** Stores a 200 response; ignored when GitHub sent no validator to revalidate with. */
+    public void put(String url, String etag, String lastModified, byte[] body) {
+        if (!enabled || body == null || (etag == null && lastModified == null)) return;
+        String key = keyOf(url);
+        try {
+            Files.createDirectories(cacheDir);
+            Path tmp = Files.createTempFile(cacheDir, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeUTF(url);
+                out.writeUTF(etag != null ? etag : "");
+                out.writeUTF(lastModified != null ? lastModified : "");
+                out.write(body);
+            }
+            Files.move(tmp, cacheDir.resolve(key + SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Could not cache GitHub response for {}: {}", url, ex.getMessage());
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (approxBytes.addAndGet(body.length) > maxSize.toBytes() || now >= nextSweepAt) {
+            sweep(now);
+        }
+    }
+
+    /**
+     * Deletes expired entries, then the least recently used ones until the directory
+     * fits in {@code max-size}. Runs at least once per {@code max-age / 24} while
+     * responses are being stored; concurrent callers skip it.
+     */
+    private void sweep(long now) {
+        if (!sweepLock.tryLock()) return;
+        try {
+            nextSweepAt = now + Math.max(60_000, maxAge.toMillis() / 24);
+            long cutoff = now - maxAge.toMillis();
+            List<Path> files = new ArrayList<>();
+            List<BasicFileAttributes> attributes = new ArrayList<>();
+            try (Stream<Path> listing = Files.list(cacheDir)) {
+                for (Path file : (Iterable<Path>) listing::iterator) {
+                    String name = file.getFileName().toString();
+                    if (!name.endsWith(SUFFIX)) {
+                        // temp files left by a crash
+                        if (isOldTemp(file, name, cutoff)) Files.deleteIfExists(file);
+                        continue;
+                    }
+                    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (attrs.lastModifiedTime().toMillis() < cutoff) {
+                        Files.deleteIfExists(file);
+                    } else {
+                        files.add(file);
+                        attributes.add(attrs);
+                    }
+                }
+            }
+
+            long total = attributes.stream().mapToLong(BasicFileAttributes::size).sum();
+            List<Integer> byAge = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) byAge.add(i);
+            byAge.sort(Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+            int evicted = 0;
+            for (int i : byAge) {
+                if (total <= maxSize.toBytes()) break;
+                Files.deleteIfExists(files.get(i));
+                total -= attributes.get(i).size();
+                evicted++;
+            }
+            approxBytes.set(total);
+            if (evicted > 0) log.info("Evicted {} GitHub responses from the cache ({} bytes left)", evicted, total);
+        } catch (IOException ex) {
+            log.warn("Could not sweep the GitHub response cache: {}", ex.getMessage());
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private boolean isOldTemp(Path file, String name, long cutoff) throws IOException {
+        return name.endsWith(".tmp") && Files.getLastModifiedTime(file).toMillis() < cutoff;
+    }
+
+    /** Marks an entry as recently used for the LRU eviction. */
+    private void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            log.debug("Could not touch cached GitHub response {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private String keyOf(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    public static class CachedResponse {
+        final String etag;
+        final String lastModified;
+        final byte[] body;
+
+        CachedResponse(String etag, String lastModified, byte[] body) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+    }
+}
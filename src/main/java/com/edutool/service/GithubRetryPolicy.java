@@ -0,0 +1,101 @@
+package com.edutool.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Waiting rules for GitHub calls that are worth repeating: 202 "still computing"
+ * and 5xx / I/O failures.
+ *
+ * <p>The first wait is {@code github.retry.initial-delay}; each later one grows by
+ * {@code github.retry.multiplier} up to {@code github.retry.max-delay}. Every wait is
+ * drawn at random from the upper half of that value, so repositories that were
+ * first asked at the same moment do not keep retrying in lockstep. A
+ * {@code Retry-After} header replaces the computed wait. Retrying ends when the next
+ * wait would pass {@code github.retry.deadline}, counted from {@link #start()}.
+ */
+@Component
+public class GithubRetryPolicy {
+
+    @Value("${github.retry.initial-delay:PT1S}")
+    private Duration initialDelay;
+
+    @Value("${github.retry.max-delay:PT15S}")
+    private Duration maxDelay;
+
+    @Value("${github.retry.multiplier:2.0}")
+    private double multiplier;
+
+    @Value("${github.retry.deadline:PT45S}")
+    private Duration deadline;
+
+    /** Starts the clock for one operation; not shared between threads. */
+    public Backoff start() {
+        return new Backoff(System.currentTimeMillis() + deadline.toMillis());
+    }
+
+    public class Backoff {
+        private final long deadlineAt;
+        private long nextDelayMs = initialDelay.toMillis();
+        private int retries;
+
+        private Backoff(long deadlineAt) {
+            this.deadlineAt = deadlineAt;
+        }
+
+        /**
+         * Sleeps before the next attempt.
+         *
+         * @param headers headers of the response that asked for a retry, for {@code Retry-After}; may be {@code null}
+         * @return {@code false} without sleeping when the wait would pass the deadline
+         * @throws IllegalStateException when interrupted while waiting
+         */
+        public boolean await(HttpHeaders headers) {
+            long delay = retryAfterMillis(headers);
+            if (delay < 0) {
+                long capped = Math.min(nextDelayMs, maxDelay.toMillis());
+                delay = capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+                nextDelayMs = (long) Math.min(maxDelay.toMillis(), nextDelayMs * multiplier);
+            }
+            if (System.currentTimeMillis() + delay > deadlineAt) return false;
+
+            retries++;
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting to retry a GitHub call", ex);
+            }
+            return true;
+        }
+
+        /** Retries waited for so far. */
+        public int retries() {
+            return retries;
+        }
+    }
+
+    /** {@code Retry-After} as delta-seconds or HTTP date, or {@code -1} when absent or unreadable. */
+    static long retryAfterMillis(HttpHeaders headers) {
+        String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (value == null || value.isBlank()) return -1;
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException ignored) {
+            // not delta-seconds, try the HTTP-date form
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+        } catch (DateTimeParseException ex) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.edutool.service;
+
+import com.edutool.model.GithubRepository;
+import com.edutool.repository.GithubRepositoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Off-peak refresh of {@code commit_contributions} for every repository of an
+ * active project, so interactive reports find stored, fresh data.
+ *
+ * <p>GitHub computes {@code /stats/contributors} lazily, so a run first sends one
+ * request per repository still lacking a sync cursor to start the computation, waits
+ * {@code github.sync.warmup-delay}, and only then syncs project by project with
+ * {@link GithubRateLimiter.Priority#BACKGROUND} priority.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GithubSyncScheduler {
+
+    private final GithubRepositoryRepository repoRepository;
+    private final GithubApiService githubApiService;
+
+    @Value("${github.sync.enabled:true}")
+    private boolean enabled;
+
+    @Value("${github.sync.warmup-delay:PT2M}")
+    private Duration warmupDelay;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${github.sync.cron:0 0 2 * * *}")
+    public void syncAllRepositories() {
+        if (!enabled) return;
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Previous GitHub sync is still running, skipping this run");
+            return;
+        }
+        try {
+            runSync();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("GitHub sync interrupted");
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void runSync() throws InterruptedException {
+        List<GithubRepository> repos = repoRepository.findAll().stream()
+                .filter(r -> r.getProject() != null && r.getProject().getDeletedAt() == null)
+                .collect(Collectors.toList());
+        if (repos.isEmpty()) return;
+
+        long startedAt = System.currentTimeMillis();
+        // Repos with a cursor sync incrementally from /commits and need no stats warm-up
+        List<GithubRepository> needFullSync = repos.stream()
+                .filter(r -> r.getLastCommitSha() == null)
+                .collect(Collectors.toList());
+        if (!needFullSync.isEmpty()) {
+            log.info("GitHub sync: warming contributor stats for {} repositories", needFullSync.size());
+            needFullSync.forEach(githubApiService::warmContributorStats);
+            Thread.sleep(warmupDelay.toMillis());
+        }
+
+        Set<Integer> projectIds = repos.stream()
+                .map(r -> r.getProject().getProjectId())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        int synced = 0;
+        for (Integer projectId : projectIds) {
+            try {
+                synced += githubApiService.syncProjectRepositories(projectId, GithubRateLimiter.Priority.BACKGROUND);
+            } catch (Exception ex) {
+                log.warn("GitHub sync failed for project {}: {}", projectId, ex.getMessage());
+            }
+        }
+        log.info("GitHub sync finished: {}/{} repositories stored in {} s",
+                synced, repos.size(), (System.currentTimeMillis() - startedAt) / 1000);
+    }
+}
@@ -0,0 +1,195 @@
+package com.edutool.service;
+
+import com.edutool.dto.response.GithubRateLimitResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pool of GitHub access tokens with per-token quota tracking.
+ *
+ * <p>Tokens come from {@code github.tokens} (comma-separated) plus the legacy
+ * single {@code github.token}. Each request is sent with the usable token that
+ * has the most remaining quota, so total throughput grows with the number of
+ * tokens. A token answering 401 is dropped for good; one that hit GitHub's
+ * secondary rate limit is parked for its {@code Retry-After} (default
+ * {@code github.token-pool.secondary-limit-cooldown}); an exhausted token simply
+ * sits out until its window resets. Other 403s concern a repository or organisation
+ * (SAML enforcement, fine-grained token scope), not the token, and leave it in the
+ * pool. With no tokens configured the pool holds a single anonymous entry
+ * (60 requests/hour).
+ *
+ * <p>Scheduling decisions are made by {@link GithubRateLimiter}; this class only
+ * keeps the bookkeeping and is safe to call from any thread.
+ */
+@Slf4j
+@Component
+public class GithubTokenPool {
+
+    @Value("${github.tokens:}")
+    private String githubTokens;
+
+    @Value("${github.token:}")
+    private String githubToken;
+
+    @Value("${github.token-pool.secondary-limit-cooldown:PT1M}")
+    private Duration secondaryLimitCooldown;
+
+    private final List<Token> tokens = new ArrayList<>();
+
+    @PostConstruct
+    void init() {
+        Set<String> values = new LinkedHashSet<>();
+        for (String raw : (githubTokens + "," + githubToken).split(",")) {
+            if (!raw.isBlank()) values.add(raw.trim());
+        }
+        values.forEach(v -> tokens.add(new Token(v)));
+        if (tokens.isEmpty()) {
+            tokens.add(new Token(null));
+        }
+        log.info("GitHub token pool initialised with {} token(s)", hasTokens() ? tokens.size() : 0);
+    }
+
+    public boolean hasTokens() {
+        return tokens.get(0).value != null;
+    }
+
+    /** Usable token with the most remaining quota, or {@code null} when every token is disabled. */
+    synchronized Token best(long now) {
+        Token best = null;
+        for (Token t : tokens) {
+            t.rollOverIfReset(now);
+            if (!t.isUsable(now)) continue;
+            if (best == null || t.effectiveRemaining() > best.effectiveRemaining()) best = t;
+        }
+        return best;
+    }
+
+    /** Sum of the known remaining quota over usable tokens, or -1 while still unknown. */
+    synchronized int totalRemaining(long now) {
+        int total = 0;
+        for (Token t : tokens) {
+            if (!t.isUsable(now)) continue;
+            if (t.remaining < 0) return -1;
+            total += t.remaining;
+        }
+        return total;
+    }
+
+    /** Earliest moment a token becomes usable again or gets a fresh window. */
+    synchronized long nextRecoveryAt(long now) {
+        long earliest = Long.MAX_VALUE;
+        for (Token t : tokens) {
+            if (t.revoked) continue;
+            if (t.disabledUntil > now) earliest = Math.min(earliest, t.disabledUntil);
+            else if (t.resetAtMillis > now) earliest = Math.min(earliest, t.resetAtMillis);
+        }
+        return earliest;
+    }
+
+    synchronized void consume(Token token) {
+        if (token.remaining > 0) token.remaining--;
+    }
+
+    synchronized void update(Token token, HttpHeaders headers) {
+        if (headers == null) return;
+        String remainingHeader = headers.getFirst("X-RateLimit-Remaining");
+        String resetHeader = headers.getFirst("X-RateLimit-Reset");
+        if (remainingHeader == null || resetHeader == null) return;
+        try {
+            token.remaining = Integer.parseInt(remainingHeader);
+            token.resetAtMillis = Long.parseLong(resetHeader) * 1000;
+            String limitHeader = headers.getFirst("X-RateLimit-Limit");
+            if (limitHeader != null) token.limit = Integer.parseInt(limitHeader);
+        } catch (NumberFormatException ex) {
+            log.debug("Ignoring malformed GitHub rate limit headers: {}", ex.getMessage());
+        }
+    }
+
+    /** Drops a token that GitHub answered with 401 for good. */
+    synchronized void revoke(Token token) {
+        if (token.value == null) return; // anonymous access cannot be swapped out
+        token.revoked = true;
+        token.disabledReason = "401 Unauthorized – token invalid or revoked";
+        log.warn("GitHub token {} rejected with 401, removing it from the pool", token.label());
+    }
+
+    /**
+     * Parks a token that hit the secondary rate limit.
+     *
+     * @param retryAfterMs the response's {@code Retry-After}, or a negative value for the default cooldown
+     */
+    synchronized void park(Token token, long retryAfterMs) {
+        long pause = retryAfterMs >= 0 ? retryAfterMs : secondaryLimitCooldown.toMillis();
+        token.disabledUntil = System.currentTimeMillis() + pause;
+        token.disabledReason = "Secondary rate limit";
+        log.warn("GitHub token {} hit the secondary rate limit, parking it for {} ms", token.label(), pause);
+    }
+
+    synchronized List<GithubRateLimitResponse.TokenQuota> snapshot(long now) {
+        List<GithubRateLimitResponse.TokenQuota> result = new ArrayList<>();
+        for (Token t : tokens) {
+            t.rollOverIfReset(now);
+            String status = t.revoked || t.disabledUntil > now ? "DISABLED"
+                    : t.remaining == 0 ? "EXHAUSTED" : "ACTIVE";
+            result.add(GithubRateLimitResponse.TokenQuota.builder()
+                    .token(t.label())
+                    .status(status)
+                    .limit(t.limit)
+                    .remaining(t.remaining)
+                    .resetAt(t.resetAtMillis > 0
+                            ? LocalDateTime.ofInstant(Instant.ofEpochMilli(t.resetAtMillis), ZoneId.systemDefault()) : null)
+                    .disabledReason("DISABLED".equals(status) ? t.disabledReason : null)
+                    .build());
+        }
+        return result;
+    }
+
+    static class Token {
+        final String value;
+        // -1 until the first response tells us the real values
+        int limit = -1;
+        int remaining = -1;
+        long resetAtMillis;
+        long disabledUntil;
+        boolean revoked;
+        String disabledReason;
+
+        Token(String value) {
+            this.value = value;
+        }
+
+        boolean isUsable(long now) {
+            return !revoked && disabledUntil <= now;
+        }
+
+        /** Unknown quota ranks first so every token gets probed once. */
+        int effectiveRemaining() {
+            return remaining < 0 ? Integer.MAX_VALUE : remaining;
+        }
+
+        /** Once the reset time has passed GitHub grants a full window again. */
+        void rollOverIfReset(long now) {
+            if (remaining >= 0 && resetAtMillis > 0 && now >= resetAtMillis) {
+                remaining = limit;
+                resetAtMillis = now + 3_600_000;
+            }
+        }
+
+        String label() {
+            if (value == null) return "anonymous";
+            return "…" + value.substring(Math.max(0, value.length() - 4));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.edutool.service;
+
+import com.edutool.exception.ValidationException;
+import com.edutool.model.GithubRepository;
+import com.edutool.repository.GithubRepositoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Receives GitHub {@code push} webhooks so contributions stay current without
+ * polling. Deliveries are authenticated with the {@code X-Hub-Signature-256}
+ * HMAC over the raw body using {@code github.webhook.secret}; with no secret
+ * configured every delivery is rejected.
+ *
+ * <p>Pushes to a repository's default branch are matched to every
+ * {@link GithubRepository} with the same owner/name and applied on
+ * {@code githubWebhookExecutor} via {@link GithubApiService#applyPushEvent}, so
+ * GitHub gets its response right away. When that queue is full the repository is
+ * marked stale instead, for the next sync to pick up.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GithubWebhookService {
+
+    private static final String SIGNATURE_PREFIX = "sha256=";
+
+    private final GithubRepositoryRepository repoRepository;
+    private final GithubApiService githubApiService;
+    private final ObjectMapper objectMapper;
+    @Qualifier("githubWebhookExecutor")
+    private final Executor githubWebhookExecutor;
+
+    @Value("${github.webhook.secret:}")
+    private String secret;
+
+    public boolean isSignatureValid(byte[] body, String signatureHeader) {
+        if (secret == null || secret.isBlank()) {
+            log.warn("Rejected GitHub webhook: github.webhook.secret is not configured");
+            return false;
+        }
+        if (signatureHeader == null || !signatureHeader.startsWith(SIGNATURE_PREFIX)) return false;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] expected = mac.doFinal(body);
+            byte[] actual = HexFormat.of().parseHex(signatureHeader.substring(SIGNATURE_PREFIX.length()));
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException ex) {
+            return false; // not a hex digest
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HmacSHA256 unavailable", ex);
+        }
+    }
+
+    /**
+     * Queues a verified delivery.
+     *
+     * @return the repositories ({@code owner/name (project code)}) the push was queued for;
+     *         empty for {@code ping}, pushes to other branches and unknown repositories
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> handle(String event, byte[] body) {
+        if ("ping".equals(event)) return List.of();
+        if (!"push".equals(event)) {
+            throw new ValidationException("Unsupported GitHub webhook event: " + event);
+        }
+
+        Map<String, Object> payload = objectMapper.readValue(body, new TypeReference<Map<String, Object>>() {});
+        Map<String, Object> repository = (Map<String, Object>) payload.get("repository");
+        if (repository == null) {
+            throw new ValidationException("Push payload has no repository");
+        }
+        Map<String, Object> owner = (Map<String, Object>) repository.get("owner");
+        String ownerLogin = owner != null
+                ? (String) (owner.get("login") != null ? owner.get("login") : owner.get("name")) : null;
+        String repoName = (String) repository.get("name");
+
+        // Stats and cursors follow the default branch only; branch deletions carry no commits
+        String ref = (String) payload.get("ref");
+        if (!("refs/heads/" + repository.get("default_branch")).equals(ref)
+                || Boolean.TRUE.equals(payload.get("deleted"))) {
+            return List.of();
+        }
+
+        String before = (String) payload.get("before");
+        String after = (String) payload.get("after");
+        List<Map<String, Object>> commits = payload.get("commits") instanceof List<?> list
+                ? (List<Map<String, Object>>) list : List.of();
+
+        List<String> queued = new ArrayList<>();
+        for (GithubRepository repo : repoRepository.findByOwnerIgnoreCaseAndRepoNameIgnoreCase(ownerLogin, repoName)) {
+            if (repo.getProject() == null || repo.getProject().getDeletedAt() != null) continue;
+            queued.add(repo.getOwner() + "/" + repo.getRepoName() + " (" + repo.getProject().getProjectCode() + ")");
+            try {
+                githubWebhookExecutor.execute(() -> {
+                    try {
+                        log.info("GitHub push webhook – {}", githubApiService.applyPushEvent(repo, before, after, commits));
+                    } catch (Exception ex) {
+                        log.warn("Could not apply push to {}/{}: {}", repo.getOwner(), repo.getRepoName(), ex.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                log.info("Webhook queue full, marking {}/{} for resync", repo.getOwner(), repo.getRepoName());
+                githubApiService.markStale(repo);
+            }
+        }
+        if (queued.isEmpty()) {
+            log.debug("Ignoring push for unknown repository {}/{}", ownerLogin, repoName);
+        }
+        return queued;
+    }
+}
@@ -0,0 +1,26 @@
+package com.edutool.service;
+
+import java.time.Instant;
+
+/**
+ * One commit of a repository's default-branch history with its line counts, as
+ * read by {@link GithubGraphqlClient} or {@link GitMirrorClient}. GraphQL knows the
+ * author's GitHub login; a local mirror only knows the name and e-mail recorded in
+ * the commit, from which the login is resolved later.
+ */
+public class HistoryCommit {
+    String sha;
+    // null when the commit e-mail is not linked to a GitHub account, or read from a mirror
+    String authorLogin;
+    String authorName;
+    String authorEmail;
+    Instant authoredAt;
+    Instant committedAt;
+    int additions;
+    int deletions;
+    Integer changedFiles;
+    // more than one for a merge commit, which is not counted
+    int parents = 1;
+    String message;
+    String url;
+}
@@ -0,0 +1,67 @@
+package com.edutool.service;
+
+import com.edutool.dto.response.HttpClientPoolResponse;
+import lombok.RequiredArgsConstructor;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reports the usage of the outbound connection pool behind {@code restTemplate},
+ * next to the number of threads that may call GitHub at once, so the pool can be
+ * sized against the report concurrency.
+ */
+@Component
+@RequiredArgsConstructor
+public class HttpClientPoolMonitor {
+
+    private final ObjectProvider<PoolingHttpClientConnectionManager> connectionManager;
+
+    @Value("${http.client.mode:pooled}")
+    private String mode;
+
+    @Value("${github.fetch.max-concurrency:4}")
+    private int fetchConcurrency;
+
+    @Value("${github.report-jobs.concurrency:2}")
+    private int reportJobConcurrency;
+
+    public HttpClientPoolResponse snapshot() {
+        HttpClientPoolResponse.HttpClientPoolResponseBuilder response = HttpClientPoolResponse.builder()
+                .mode(mode)
+                .githubConcurrency(fetchConcurrency + reportJobConcurrency);
+        PoolingHttpClientConnectionManager pool = connectionManager.getIfAvailable();
+        if (pool == null) {
+            return response.routes(List.of()).build();
+        }
+
+        PoolStats total = pool.getTotalStats();
+        List<HttpClientPoolResponse.RoutePool> routes = new ArrayList<>();
+        for (HttpRoute route : pool.getRoutes()) {
+            PoolStats stats = pool.getStats(route);
+            routes.add(HttpClientPoolResponse.RoutePool.builder()
+                    .route(route.getTargetHost().toURI())
+                    .max(stats.getMax())
+                    .leased(stats.getLeased())
+                    .available(stats.getAvailable())
+                    .pending(stats.getPending())
+                    .build());
+        }
+        routes.sort(Comparator.comparing(HttpClientPoolResponse.RoutePool::getRoute));
+        return response
+                .maxTotal(total.getMax())
+                .maxPerRoute(pool.getDefaultMaxPerRoute())
+                .leased(total.getLeased())
+                .available(total.getAvailable())
+                .pending(total.getPending())
+                .routes(routes)
+                .build();
+    }
+}
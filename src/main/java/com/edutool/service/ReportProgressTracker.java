@@ -0,0 +1,276 @@
+package com.edutool.service;
+
+import com.edutool.dto.response.ReportProgressEvent;
+import com.edutool.model.GithubRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-project progress of commit report generation, streamed to browsers as
+ * server-sent events.
+ *
+ * <p>{@link GithubApiService} opens a {@link Run} when it starts computing a project
+ * report and reports each repository as it moves through queued → fetching →
+ * computing (GitHub answered 202) → done / error. Subscribers receive the events of
+ * the latest run first, so a client that connects late, or reconnects with
+ * {@code Last-Event-ID}, catches up before following live events. A finished run
+ * is replayed for {@code github.report.progress.retention}; streams stay open for
+ * the next run until {@code github.report.progress.stream-timeout}.
+ *
+ * <p>Events are only queued per subscriber by the fetch workers; the blocking
+ * writes happen on {@code reportProgressExecutor}, one drain at a time per
+ * subscriber, so a slow client never holds up fetching. A subscriber that falls
+ * more than {@value #MAX_PENDING} events behind is disconnected.
+ *
+ * <p>One channel is kept per project that was ever reported on; it holds only the
+ * latest run.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReportProgressTracker {
+
+    public enum EventType { STARTED, QUEUED, FETCHING, COMPUTING, DONE, ERROR, COMPLETED, FAILED }
+
+    private static final int MAX_PENDING = 1000;
+
+    @Qualifier("reportProgressExecutor")
+    private final TaskExecutor reportProgressExecutor;
+
+    @Value("${github.report.progress.stream-timeout:PT15M}")
+    private Duration streamTimeout;
+
+    @Value("${github.report.progress.retention:PT10M}")
+    private Duration retention;
+
+    private final Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+
+    /** Starts a new run for the project; its events replace the previous run's in the replay. */
+    public Run begin(Integer projectId, int totalRepos) {
+        Channel channel = channels.computeIfAbsent(projectId, id -> new Channel());
+        Run run = new Run(this, channel, projectId, totalRepos);
+        synchronized (channel) {
+            channel.current = run;
+        }
+        run.emit(EventType.STARTED, null, "Generating commit report for " + totalRepos + " repositories", null);
+        return run;
+    }
+
+    /**
+     * Records a report answered from the report cache as a run of its own, so a client
+     * waiting on the stream sees it finish. Skipped while another run is in progress.
+     */
+    public void served(Integer projectId, int totalRepos) {
+        Channel channel = channels.get(projectId);
+        if (channel != null) {
+            synchronized (channel) {
+                if (channel.current != null && channel.current.finishedAt == null) return;
+            }
+        }
+        Run run = begin(projectId, totalRepos);
+        run.completedRepos = totalRepos;
+        run.complete("Served from the report cache");
+    }
+
+    /**
+     * Opens an event stream for the project, replaying the latest run (only the events
+     * after {@code lastEventId} when given).
+     */
+    public SseEmitter subscribe(Integer projectId, Long lastEventId) {
+        Channel channel = channels.computeIfAbsent(projectId, id -> new Channel());
+        Subscriber subscriber = new Subscriber(new SseEmitter(streamTimeout.toMillis()));
+        subscriber.emitter.onCompletion(() -> channel.remove(subscriber));
+        subscriber.emitter.onTimeout(() -> channel.remove(subscriber));
+        subscriber.emitter.onError(ex -> channel.remove(subscriber));
+
+        synchronized (channel) {
+            Run run = channel.current;
+            if (run != null && run.finishedAt != null
+                    && run.finishedAt.isBefore(LocalDateTime.now().minus(retention))) {
+                channel.current = run = null;
+            }
+            if (run != null) {
+                for (ReportProgressEvent event : run.events) {
+                    if (lastEventId == null || event.getSequence() > lastEventId) subscriber.offer(event);
+                }
+            }
+            channel.subscribers.add(subscriber);
+        }
+        drain(channel, subscriber);
+        log.debug("Progress stream opened for project {}", projectId);
+        return subscriber.emitter;
+    }
+
+    /** Sends the subscriber's queued events on the executor unless a drain is already running. */
+    private void drain(Channel channel, Subscriber subscriber) {
+        if (subscriber.pending.isEmpty() || !subscriber.draining.compareAndSet(false, true)) return;
+        reportProgressExecutor.execute(() -> {
+            try {
+                ReportProgressEvent event;
+                while ((event = subscriber.pending.poll()) != null) {
+                    subscriber.size.decrementAndGet();
+                    if (!send(subscriber.emitter, event)) {
+                        channel.remove(subscriber);
+                        return;
+                    }
+                }
+            } finally {
+                subscriber.draining.set(false);
+            }
+            // an event may have been queued after the last poll but before draining was reset
+            drain(channel, subscriber);
+        });
+    }
+
+    private static boolean send(SseEmitter emitter, ReportProgressEvent event) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.getSequence()))
+                    .name(event.getType().toLowerCase(Locale.ROOT))
+                    .data(event, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException ex) {
+            // client went away; the container completes the emitter
+            return false;
+        }
+    }
+
+    private static class Channel {
+        final List<Subscriber> subscribers = new ArrayList<>();
+        Run current;
+        long nextSequence = 1;
+
+        synchronized void remove(Subscriber subscriber) {
+            subscribers.remove(subscriber);
+            subscriber.pending.clear();
+        }
+    }
+
+    private static class Subscriber {
+        final SseEmitter emitter;
+        final Queue<ReportProgressEvent> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /** Queues an event; callers hold the channel monitor so events stay in sequence order. */
+        boolean offer(ReportProgressEvent event) {
+            if (size.incrementAndGet() > MAX_PENDING) return false;
+            pending.add(event);
+            return true;
+        }
+    }
+
+    /**
+     * Progress handle of one report generation; safe to call from the fetch workers.
+     * {@link #NONE} discards everything, for syncs nobody is watching.
+     */
+    public static final class Run {
+
+        public static final Run NONE = new Run(null, null, null, 0);
+
+        private final ReportProgressTracker tracker;
+        private final Channel channel;
+        private final Integer projectId;
+        private final String runId = UUID.randomUUID().toString();
+        private final int totalRepos;
+        private final List<ReportProgressEvent> events = new ArrayList<>();
+        private int completedRepos;
+        private LocalDateTime finishedAt;
+
+        private Run(ReportProgressTracker tracker, Channel channel, Integer projectId, int totalRepos) {
+            this.tracker = tracker;
+            this.channel = channel;
+            this.projectId = projectId;
+            this.totalRepos = totalRepos;
+        }
+
+        public void queued(GithubRepository repo) {
+            emit(EventType.QUEUED, repo, null, null);
+        }
+
+        public void fetching(GithubRepository repo) {
+            emit(EventType.FETCHING, repo, null, null);
+        }
+
+        public void computing(GithubRepository repo, int retry) {
+            emit(EventType.COMPUTING, repo, "GitHub is still computing statistics (retry " + retry + ")", null);
+        }
+
+        public void done(GithubRepository repo, String message, Integer commits) {
+            emit(EventType.DONE, repo, message, commits);
+        }
+
+        public void error(GithubRepository repo, String message) {
+            emit(EventType.ERROR, repo, message, null);
+        }
+
+        public void complete(String message) {
+            emit(EventType.COMPLETED, null, message, null);
+        }
+
+        public void fail(String message) {
+            emit(EventType.FAILED, null, message, null);
+        }
+
+        private void emit(EventType type, GithubRepository repo, String message, Integer commits) {
+            if (tracker == null) return;
+            List<Subscriber> receivers;
+            List<Subscriber> overflowed = new ArrayList<>();
+            synchronized (channel) {
+                if (finishedAt != null) return;
+                if (type == EventType.DONE || type == EventType.ERROR) completedRepos++;
+                if (type == EventType.COMPLETED || type == EventType.FAILED) finishedAt = LocalDateTime.now();
+
+                ReportProgressEvent event = ReportProgressEvent.builder()
+                        .sequence(channel.nextSequence++)
+                        .runId(runId)
+                        .projectId(projectId)
+                        .type(type.name())
+                        .repoId(repo != null ? repo.getRepoId() : null)
+                        .repository(repo != null ? repo.getOwner() + "/" + repo.getRepoName() : null)
+                        .message(message)
+                        .commits(commits)
+                        .completedRepos(completedRepos)
+                        .totalRepos(totalRepos)
+                        .at(LocalDateTime.now())
+                        .build();
+                events.add(event);
+                for (Subscriber subscriber : channel.subscribers) {
+                    if (!subscriber.offer(event)) overflowed.add(subscriber);
+                }
+                channel.subscribers.removeAll(overflowed);
+                receivers = new ArrayList<>(channel.subscribers);
+            }
+            for (Subscriber subscriber : overflowed) {
+                log.info("Closing progress stream of project {}: client is {} events behind", projectId, MAX_PENDING);
+                subscriber.pending.clear();
+                subscriber.emitter.complete();
+            }
+            receivers.forEach(subscriber -> tracker.drain(channel, subscriber));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.edutool.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoField;
+import java.time.temporal.IsoFields;
+import java.util.Arrays;
+
+/**
+ * Commits, additions and deletions of one student in one repository, bucketed
+ * by ISO week (Monday-based, UTC).
+ *
+ * <p>All three counters live in a single {@code int[]} (stride 3) indexed by the
+ * week's offset from the first bucket, so adding a week or rendering the report
+ * never allocates per-week objects or boxes keys. The array grows in either
+ * direction when a week outside the current range arrives; a week with zero
+ * commits counts as absent.
+ */
+class WeekBuckets {
+
+    private static final int STRIDE = 3;
+
+    // Week index of slot 0, counted in weeks since the Monday before 1970-01-01
+    private long firstWeek;
+    private int[] counts = new int[0];
+
+    /**
+     * Week index under which a commit at the given epoch second is stored. GitHub's
+     * stats/contributors counts weeks from Sunday to Saturday (UTC) and each one is
+     * kept as the ISO week containing its starting Sunday, so single commits (the
+     * /commits, incremental, push, GraphQL and mirror paths) must land there too:
+     * a commit made Monday to Saturday belongs to the ISO week before its own.
+     */
+    static long githubWeekIndexOf(long epochSecond) {
+        return Math.floorDiv(Math.floorDiv(epochSecond, 86_400L) - 3, 7);
+    }
+
+    /** Week index containing the given date. */
+    static long weekIndexOf(LocalDate date) {
+        return Math.floorDiv(date.toEpochDay() + 3, 7);
+    }
+
+    /** Week index of an ISO week-based year and week number. */
+    static long weekIndexOf(int isoYear, int isoWeek) {
+        LocalDate monday = LocalDate.of(isoYear, 1, 4)
+                .with(IsoFields.WEEK_OF_WEEK_BASED_YEAR, isoWeek)
+                .with(ChronoField.DAY_OF_WEEK, 1);
+        return weekIndexOf(monday);
+    }
+
+    /** ISO week-based year and week of a week index, encoded as {@code year * 100 + week}. */
+    static int yearWeekOf(long weekIndex) {
+        LocalDate monday = LocalDate.ofEpochDay(weekIndex * 7 - 3);
+        return monday.get(IsoFields.WEEK_BASED_YEAR) * 100 + monday.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+    }
+
+    void add(long weekIndex, int commits, int additions, int deletions) {
+        int slot = slotFor(weekIndex) * STRIDE;
+        counts[slot]     += commits;
+        counts[slot + 1] += additions;
+        counts[slot + 2] += deletions;
+    }
+
+    void addAll(WeekBuckets other) {
+        for (int i = 0; i < other.size(); i++) {
+            if (other.commits(i) == 0) continue;
+            add(other.weekIndex(i), other.commits(i), other.additions(i), other.deletions(i));
+        }
+    }
+
+    /** Number of slots, including empty ones; iterate {@code 0..size()-1} and skip {@link #isEmpty(int)}. */
+    int size() {
+        return counts.length / STRIDE;
+    }
+
+    boolean isEmpty(int slot) {
+        return counts[slot * STRIDE] == 0;
+    }
+
+    /** Number of weeks with at least one commit. */
+    int activeWeeks() {
+        int n = 0;
+        for (int i = 0; i < counts.length; i += STRIDE) {
+            if (counts[i] != 0) n++;
+        }
+        return n;
+    }
+
+    long weekIndex(int slot) {
+        return firstWeek + slot;
+    }
+
+    int yearWeek(int slot) {
+        return yearWeekOf(weekIndex(slot));
+    }
+
+    int commits(int slot) {
+        return counts[slot * STRIDE];
+    }
+
+    int additions(int slot) {
+        return counts[slot * STRIDE + 1];
+    }
+
+    int deletions(int slot) {
+        return counts[slot * STRIDE + 2];
+    }
+
+    private int slotFor(long weekIndex) {
+        int size = size();
+        if (size == 0) {
+            firstWeek = weekIndex;
+            counts = new int[STRIDE];
+            return 0;
+        }
+        if (weekIndex < firstWeek) {
+            int shift = Math.toIntExact(firstWeek - weekIndex);
+            int[] grown = new int[(size + shift) * STRIDE];
+            System.arraycopy(counts, 0, grown, shift * STRIDE, counts.length);
+            counts = grown;
+            firstWeek = weekIndex;
+            return 0;
+        }
+        int slot = Math.toIntExact(weekIndex - firstWeek);
+        if (slot >= size) {
+            counts = Arrays.copyOf(counts, Math.max(slot + 1, size * 2) * STRIDE);
+        }
+        return slot;
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Component;
 
 import com.edutool.model.User;
 import com.edutool.repository.UserRepository;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -25,6 +26,9 @@ public class JwtUtil {
     @Value("${jwt.access-token-expiration}")
     private long expiration;
 
+    @Value("${jwt.path-token-expiration:60000}")
+    private long pathTokenExpiration;
+
     JwtUtil(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
@@ -43,6 +47,35 @@ public class JwtUtil {
                 .compact();
     }
 
+    /**
+     * Short-lived token that authenticates GET requests to {@code path} only, sent as the
+     * {@code access_token} query parameter by clients that cannot set an Authorization
+     * header (a browser's {@code EventSource}).
+     */
+    public String generatePathToken(String username, String path) {
+        return Jwts.builder()
+                .setSubject(username)
+                .claim("path", path)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + pathTokenExpiration))
+                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /** Username of a valid path token issued for exactly {@code path}, otherwise {@code null}. */
+    public String extractPathTokenUsername(String token, String path) {
+        try {
+            Claims claims = Jwts.parserBuilder()
+                    .setSigningKey(getSigningKey())
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+            return path.equals(claims.get("path")) ? claims.getSubject() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     public String extractUsername(String token) {
         return Jwts.parserBuilder()
                 .setSigningKey(getSigningKey())
@@ -54,11 +87,13 @@ public class JwtUtil {
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
+            Claims claims = Jwts.parserBuilder()
                 .setSigningKey(getSigningKey())
                 .build()
-                .parseClaimsJws(token);
-            return true;
+                .parseClaimsJws(token)
+                .getBody();
+            // path tokens are only good for their own URL
+            return claims.get("path") == null;
         } catch (Exception e) {
             return false;
         }
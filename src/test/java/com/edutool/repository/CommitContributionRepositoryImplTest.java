@@ -0,0 +1,161 @@
+package com.edutool.repository;
+
+import com.edutool.model.CommitContribution;
+import com.edutool.model.Course;
+import com.edutool.model.GithubRepository;
+import com.edutool.model.Project;
+import com.edutool.model.Role;
+import com.edutool.model.Student;
+import com.edutool.model.User;
+import com.edutool.model.UserStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "github.sync.enabled=false")
+@Transactional
+class CommitContributionRepositoryImplTest {
+
+    @Autowired
+    private CommitContributionRepository contributionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private GithubRepositoryRepository repoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Student alice;
+    private Student bob;
+    private Project project;
+    private GithubRepository repo;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        Course course = new Course();
+        course.setCourseCode("TEST-" + suffix);
+        course.setCourseName("Test course");
+        courseRepository.save(course);
+
+        project = new Project();
+        project.setProjectCode("TEST-" + suffix);
+        project.setProjectName("Test project");
+        project.setCourse(course);
+        projectRepository.save(project);
+
+        alice = student("alice", suffix);
+        bob = student("bob", suffix);
+        repo = repository(project, "upsert-test");
+    }
+
+    @Test
+    void upsertInsertsNewWeeksAndOverwritesStoredOnes() {
+        contributionRepository.upsertAll(List.of(week(alice, repo, 10, 2, 20, 4), week(bob, repo, 10, 1, 5, 0)));
+        contributionRepository.upsertAll(List.of(week(alice, repo, 10, 3, 30, 6), week(alice, repo, 11, 1, 1, 1)));
+
+        assertThat(storedWeeks(repo)).containsExactly(
+                "alice 2025-10 3 +30 -6", "alice 2025-11 1 +1 -1", "bob 2025-10 1 +5 -0");
+    }
+
+    @Test
+    void addAccumulatesOntoStoredWeeksAndInsertsMissingOnes() {
+        contributionRepository.upsertAll(List.of(week(alice, repo, 10, 2, 20, 4)));
+        contributionRepository.addAll(List.of(week(alice, repo, 10, 1, 5, 1), week(alice, repo, 11, 1, 3, 0)));
+
+        assertThat(storedWeeks(repo)).containsExactly("alice 2025-10 3 +25 -5", "alice 2025-11 1 +3 -0");
+    }
+
+    @Test
+    void replaceDeletesTheWeeksMissingFromTheNewHistoryOfThoseRepositoriesOnly() {
+        GithubRepository other = repository(project, "other-repo");
+        contributionRepository.upsertAll(List.of(
+                week(alice, repo, 10, 2, 20, 4), week(alice, repo, 11, 1, 3, 0), week(bob, repo, 10, 1, 5, 0),
+                week(alice, other, 10, 1, 1, 1)));
+        Integer gone = jdbcTemplate.queryForObject(
+                "SELECT contribution_id FROM commit_contributions WHERE repo_id = ? AND student_id = ? AND week_number = 11",
+                Integer.class, repo.getRepoId(), alice.getStudentId());
+        jdbcTemplate.update("INSERT INTO commit_details (contribution_id, commit_hash) VALUES (?, ?)", gone, "sha-" + gone);
+
+        // a rebase dropped alice's week-11 commit and bob's only one
+        contributionRepository.replaceAll(List.of(repo.getRepoId()), List.of(week(alice, repo, 10, 2, 20, 4)));
+
+        assertThat(storedWeeks(repo)).containsExactly("alice 2025-10 2 +20 -4");
+        assertThat(storedWeeks(other)).containsExactly("alice 2025-10 1 +1 -1");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM commit_details WHERE commit_hash = ?", Integer.class, "sha-" + gone)).isZero();
+
+        contributionRepository.replaceAll(List.of(other.getRepoId()), List.of());
+        assertThat(storedWeeks(other)).isEmpty();
+    }
+
+    private List<String> storedWeeks(GithubRepository r) {
+        return jdbcTemplate.query(
+                "SELECT s.github_username, c.year, c.week_number, c.total_commits, c.additions, c.deletions " +
+                "FROM commit_contributions c JOIN students s ON s.student_id = c.student_id " +
+                "WHERE c.repo_id = ? ORDER BY s.github_username, c.year, c.week_number",
+                (rs, i) -> String.format("%s %d-%02d %d +%d -%d", rs.getString(1), rs.getInt(2), rs.getInt(3),
+                        rs.getInt(4), rs.getInt(5), rs.getInt(6)),
+                r.getRepoId());
+    }
+
+    private static CommitContribution week(
+            Student student, GithubRepository r, int weekNumber, int commits, int additions, int deletions) {
+        CommitContribution c = new CommitContribution();
+        c.setStudent(student);
+        c.setRepository(r);
+        c.setGithubAuthor(student.getGithubUsername());
+        c.setYear(2025);
+        c.setWeekNumber(weekNumber);
+        c.setTotalCommits(commits);
+        c.setAdditions(additions);
+        c.setDeletions(deletions);
+        return c;
+    }
+
+    private Student student(String login, String suffix) {
+        User user = new User();
+        user.setUsername(login + "-" + suffix);
+        user.setPasswordHash("-");
+        user.setRole(Role.STUDENT);
+        user.setStatus(UserStatus.ACTIVE);
+        user.setEmail(login + "-" + suffix + "@example.com");
+        user.setFullName(login);
+        userRepository.save(user);
+
+        Student student = new Student();
+        student.setUser(user);
+        student.setStudentCode(login + "-" + suffix);
+        student.setGithubUsername(login);
+        return studentRepository.save(student);
+    }
+
+    private GithubRepository repository(Project project, String name) {
+        GithubRepository r = new GithubRepository();
+        r.setOwner("octo");
+        r.setRepoName(name);
+        r.setRepoUrl("https://github.com/octo/" + name);
+        r.setProject(project);
+        return repoRepository.save(r);
+    }
+}
@@ -0,0 +1,82 @@
+package com.edutool.service;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.core.JsonParser;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContributorStatsDecoderTest {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    private static final String BODY = """
+            [
+              {"total": 3,
+               "weeks": [{"w": 1000, "a": 5, "d": 1, "c": 1},
+                         {"w": 2000, "a": 0, "d": 0, "c": 0},
+                         {"w": 3000, "a": 7, "d": 2, "c": 2}],
+               "author": {"login": "alice", "id": 1, "site_admin": false}},
+              {"total": 1,
+               "weeks": [{"w": 2000, "a": 9, "d": 4, "c": 1}],
+               "author": null},
+              {"total": 4,
+               "weeks": [{"w": 1000, "a": 1, "d": 1, "c": 4, "extra": {"nested": [1, 2]}}],
+               "author": {"login": "bob"}}
+            ]
+            """;
+
+    @Test
+    void decodesWeeksWithCommitsPerLogin() {
+        List<String> weeks = new ArrayList<>();
+        List<String> logins = decode(null, null, BODY, weeks);
+
+        assertThat(logins).containsExactly("alice", "bob");
+        assertThat(weeks).containsExactly(
+                "alice@1000 c1 a5 d1",
+                "alice@3000 c2 a7 d2",
+                "bob@1000 c4 a1 d1");
+    }
+
+    @Test
+    void dropsWeeksOutsideTheWindow() {
+        List<String> weeks = new ArrayList<>();
+        List<String> logins = decode(1500L, 3000L, BODY, weeks);
+
+        // contributors are still reported when none of their weeks is kept
+        assertThat(logins).containsExactly("alice", "bob");
+        assertThat(weeks).containsExactly("alice@3000 c2 a7 d2");
+    }
+
+    @Test
+    void growsTheBufferPastItsInitialSize() {
+        StringBuilder body = new StringBuilder("[{\"weeks\":[");
+        for (int i = 1; i <= 200; i++) {
+            if (i > 1) body.append(',');
+            body.append("{\"w\":").append(i).append(",\"a\":1,\"d\":0,\"c\":1}");
+        }
+        body.append("],\"author\":{\"login\":\"carol\"}}]");
+
+        List<String> weeks = new ArrayList<>();
+        decode(null, null, body.toString(), weeks);
+
+        assertThat(weeks).hasSize(200).startsWith("carol@1 c1 a1 d0").endsWith("carol@200 c1 a1 d0");
+    }
+
+    @Test
+    void returnsNothingForANonArrayBody() {
+        List<String> weeks = new ArrayList<>();
+        assertThat(decode(null, null, "{}", weeks)).isEmpty();
+        assertThat(weeks).isEmpty();
+    }
+
+    private static List<String> decode(Long since, Long until, String body, List<String> weeks) {
+        try (JsonParser parser = MAPPER.createParser(body)) {
+            return new ContributorStatsDecoder(since, until).decode(parser, (login, w, c, a, d) ->
+                    weeks.add(login + "@" + w + " c" + c + " a" + a + " d" + d));
+        }
+    }
+}
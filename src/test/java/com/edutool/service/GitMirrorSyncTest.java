@@ -0,0 +1,167 @@
+package com.edutool.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.edutool.service.GithubIncrementalSyncTest.row;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code github.client.mode=git-mirror} against a local bare repository: a merged
+ * branch must be counted once however many syncs follow the merge.
+ */
+@SpringBootTest(properties = {
+        "github.client.mode=git-mirror",
+        "github.commit-cache.enabled=false",
+        "github.sync.enabled=false"})
+class GitMirrorSyncTest {
+
+    private static final Path ROOT = createTempDirectory();
+    private static final Path REMOTE = ROOT.resolve("remotes/octo/mirror-test.git");
+    private static final Path WORK = ROOT.resolve("work");
+
+    // Sunday of the week every commit below falls in
+    private static final long WEEK = 1709424000L;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private GithubApiService githubApiService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private GithubTestProject fixture;
+
+    @DynamicPropertySource
+    static void mirrors(DynamicPropertyRegistry registry) {
+        registry.add("github.mirror.dir", () -> ROOT.resolve("mirrors").toString());
+        registry.add("github.mirror.remote-url", () -> ROOT.resolve("remotes") + "/{owner}/{repo}.git");
+    }
+
+    @AfterAll
+    static void deleteRepositories() throws IOException {
+        FileSystemUtils.deleteRecursively(ROOT);
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        FileSystemUtils.deleteRecursively(ROOT);
+        Files.createDirectories(REMOTE);
+        git(REMOTE, null, "init", "--bare", "--quiet");
+        git(REMOTE, null, "symbolic-ref", "HEAD", "refs/heads/main");
+        git(ROOT, null, "clone", "--quiet", REMOTE.toString(), WORK.toString());
+        git(WORK, null, "checkout", "--quiet", "-b", "main");
+        fixture = new GithubTestProject(context, "octo", "mirror-test", "alice");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (fixture != null) fixture.delete();
+    }
+
+    @Test
+    void aMergedBranchIsCountedOnceAcrossSyncs() {
+        commit("c1", 3, "2024-03-05T10:00:00Z");
+        git(WORK, null, "push", "--quiet", "origin", "main");
+        sync();
+        assertThat(fixture.storedWeeks()).containsExactly(row("alice", WEEK, 1, 3, 0));
+
+        // f1 is the newest non-merge commit but sits on the merged branch; m2 is on main
+        git(WORK, null, "checkout", "--quiet", "-b", "feature");
+        commit("f1", 5, "2024-03-08T10:00:00Z");
+        git(WORK, null, "checkout", "--quiet", "main");
+        commit("m2", 7, "2024-03-07T10:00:00Z");
+        git(WORK, "2024-03-09T10:00:00Z", "merge", "--quiet", "--no-ff", "-m", "Merge feature", "feature");
+        git(WORK, null, "push", "--quiet", "origin", "main");
+        String head = git(WORK, null, "rev-parse", "HEAD");
+
+        fixture.markStale();
+        sync();
+        assertThat(cursor()).isEqualTo(head);
+        List<String> afterMerge = fixture.storedWeeks();
+        assertThat(afterMerge).containsExactly(row("alice", WEEK, 3, 15, 0));
+
+        fixture.markStale();
+        sync();
+        assertThat(fixture.storedWeeks()).isEqualTo(afterMerge);
+
+        fixture.resetSync();
+        sync();
+        assertThat(fixture.storedWeeks()).isEqualTo(afterMerge);
+    }
+
+    private void sync() {
+        githubApiService.syncProjectRepositories(fixture.project.getProjectId(), GithubRateLimiter.Priority.INTERACTIVE);
+    }
+
+    private String cursor() {
+        return jdbcTemplate.queryForObject("SELECT last_commit_sha FROM github_repositories WHERE repo_id = ?",
+                String.class, fixture.repo.getRepoId());
+    }
+
+    /** Commits a new file of {@code lines} lines as alice, authored and committed at {@code date}. */
+    private static void commit(String name, int lines, String date) {
+        try {
+            Files.writeString(WORK.resolve(name + ".txt"), "line\n".repeat(lines), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        git(WORK, null, "add", name + ".txt");
+        git(WORK, date, "commit", "--quiet", "-m", name);
+    }
+
+    private static String git(Path dir, String date, String... args) {
+        List<String> command = new ArrayList<>(List.of("git"));
+        Collections.addAll(command, args);
+        ProcessBuilder builder = new ProcessBuilder(command).directory(dir.toFile()).redirectErrorStream(true);
+        Map<String, String> env = builder.environment();
+        env.put("GIT_AUTHOR_NAME", "Alice");
+        env.put("GIT_AUTHOR_EMAIL", "alice@users.noreply.github.com");
+        env.put("GIT_COMMITTER_NAME", "Alice");
+        env.put("GIT_COMMITTER_EMAIL", "alice@users.noreply.github.com");
+        if (date != null) {
+            env.put("GIT_AUTHOR_DATE", date);
+            env.put("GIT_COMMITTER_DATE", date);
+        }
+        try {
+            Process process = builder.start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            assertThat(process.waitFor()).as("git %s: %s", String.join(" ", args), output).isZero();
+            return output;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("git-mirror-test");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.edutool.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.edutool.service.GithubIncrementalSyncTest.row;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** {@link GithubGraphqlClient} and the GraphQL sync mode against {@link GithubStub}'s {@code POST /graphql}. */
+@SpringBootTest(properties = {
+        "github.client.mode=graphql",
+        "github.cache.enabled=false",
+        "github.commit-cache.enabled=false",
+        "github.sync.enabled=false",
+        "github.token=test-token",
+        "github.tokens="})
+class GithubGraphqlClientTest {
+
+    private static final GithubStub GITHUB = new GithubStub();
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private GithubGraphqlClient graphqlClient;
+
+    @Autowired
+    private GithubApiService githubApiService;
+
+    private final List<JsonNode> queries = new CopyOnWriteArrayList<>();
+    private GithubTestProject fixture;
+
+    @DynamicPropertySource
+    static void githubStub(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", GITHUB::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        GITHUB.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        GITHUB.reset();
+        queries.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (fixture != null) fixture.delete();
+    }
+
+    @Test
+    void pagesThroughEachHistoryUntilItsStopCommit() {
+        GITHUB.route("/graphql", (query, body) -> {
+            JsonNode variables = read(body).get("variables");
+            if (variables.get("after0").isNull()) {
+                return GithubStub.Response.json("{\"data\":{"
+                        + "\"r0\":" + history(true, "page-2",
+                                node("c4", "alice", "2024-03-12T11:00:00Z", 7, 0, 2),
+                                node("c3", null, "2024-03-12T10:00:00Z", 5, 1, 1)) + ","
+                        + "\"r1\":null},"
+                        + "\"errors\":[{\"type\":\"NOT_FOUND\",\"path\":[\"r1\"],"
+                        + "\"message\":\"Could not resolve to a Repository with the name 'octo/gone'.\"}]}");
+            }
+            assertThat(variables.get("after0").asString()).isEqualTo("page-2");
+            assertThat(variables.has("owner1")).isFalse(); // finished histories are not queried again
+            return GithubStub.Response.json("{\"data\":{\"r0\":" + history(true, "page-3",
+                    node("c2", "bob", "2024-03-06T10:00:00Z", 2, 2, 1),
+                    node("c1", "alice", "2024-03-05T10:00:00Z", 1, 0, 1)) + "}}");
+        });
+
+        List<GithubGraphqlClient.History> histories = graphqlClient.fetchHistories(List.of(
+                new GithubGraphqlClient.HistoryRequest("octo", "app", null, "c1"),
+                new GithubGraphqlClient.HistoryRequest("octo", "gone", null, null)),
+                GithubRateLimiter.Priority.INTERACTIVE);
+
+        assertThat(GITHUB.hits("/graphql")).isEqualTo(2);
+        GithubGraphqlClient.History app = histories.get(0);
+        assertThat(app.error).isNull();
+        assertThat(app.reachedStop).isTrue();
+        assertThat(app.commits).extracting(c -> c.sha).containsExactly("c4", "c3", "c2");
+        assertThat(app.commits).extracting(c -> c.parents).containsExactly(2, 1, 1);
+        assertThat(app.commits.get(0).authorLogin).isEqualTo("alice");
+        assertThat(app.commits.get(1).authorLogin).isNull();
+        assertThat(app.commits.get(0).additions).isEqualTo(7);
+        assertThat(histories.get(1).error).startsWith("404 Not Found: ");
+    }
+
+    @Test
+    void aMergeInTheNewHistoryIsResyncedFully() {
+        fixture = new GithubTestProject(context, "octo", "graphql-test", "alice");
+        GITHUB.json("/graphql", "{\"data\":{\"r0\":" + history(false, null,
+                node("c2", "alice", "2024-03-06T10:00:00Z", 4, 1, 1),
+                node("c1", "alice", "2024-03-05T10:00:00Z", 6, 1, 1)) + "}}");
+
+        githubApiService.syncProjectRepositories(fixture.project.getProjectId(), GithubRateLimiter.Priority.INTERACTIVE);
+        assertThat(fixture.storedWeeks()).containsExactly(row("alice", 1709424000L, 2, 10, 2));
+
+        // f1 was committed on a branch before the cursor c2; 'since' returns only the merge m above c2
+        List<String> full = List.of(
+                node("m", "alice", "2024-03-07T10:00:00Z", 0, 0, 2),
+                node("c2", "alice", "2024-03-06T10:00:00Z", 4, 1, 1),
+                node("f1", "alice", "2024-03-05T12:00:00Z", 3, 0, 1),
+                node("c1", "alice", "2024-03-05T10:00:00Z", 6, 1, 1));
+        GITHUB.route("/graphql", (query, body) -> {
+            JsonNode request = read(body);
+            queries.add(request);
+            boolean incremental = !request.get("variables").get("since0").isNull();
+            List<String> nodes = incremental ? full.subList(0, 2) : full;
+            return GithubStub.Response.json(
+                    "{\"data\":{\"r0\":" + history(false, null, nodes.toArray(String[]::new)) + "}}");
+        });
+        fixture.markStale();
+
+        githubApiService.syncProjectRepositories(fixture.project.getProjectId(), GithubRateLimiter.Priority.INTERACTIVE);
+        assertThat(queries).hasSize(2);
+        assertThat(queries.get(1).get("variables").get("since0").isNull()).isTrue();
+        assertThat(fixture.storedWeeks()).containsExactly(row("alice", 1709424000L, 3, 13, 2));
+    }
+
+    private static JsonNode read(String body) {
+        return MAPPER.readTree(body);
+    }
+
+    private static String history(boolean hasNextPage, String endCursor, String... nodes) {
+        return "{\"defaultBranchRef\":{\"target\":{\"history\":{"
+                + "\"pageInfo\":{\"hasNextPage\":" + hasNextPage + ",\"endCursor\":"
+                + (endCursor != null ? "\"" + endCursor + "\"" : "null") + "},"
+                + "\"nodes\":[" + String.join(",", nodes) + "]}}}}";
+    }
+
+    /** A history node authored and committed at {@code date}; a {@code null} login is an unlinked e-mail. */
+    private static String node(String sha, String login, String date, int additions, int deletions, int parents) {
+        return "{\"oid\":\"" + sha + "\",\"authoredDate\":\"" + date + "\",\"committedDate\":\"" + date + "\","
+                + "\"additions\":" + additions + ",\"deletions\":" + deletions + ",\"changedFilesIfAvailable\":1,"
+                + "\"message\":\"" + sha + "\",\"url\":\"https://github.com/octo/graphql-test/commit/" + sha + "\","
+                + "\"author\":{\"user\":" + (login != null ? "{\"login\":\"" + login + "\"}" : "null") + "},"
+                + "\"parents\":{\"totalCount\":" + parents + "}}";
+    }
+}
@@ -0,0 +1,224 @@
+package com.edutool.service;
+
+import com.edutool.repository.GithubRepositoryRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Full and incremental REST syncs against {@link GithubStub}: both must leave the
+ * same weeks in {@code commit_contributions}, and the cursor must keep concurrent
+ * syncs from counting a commit twice.
+ */
+@SpringBootTest(properties = {
+        "github.cache.enabled=false",
+        "github.commit-cache.enabled=false",
+        "github.sync.enabled=false",
+        "github.token=",
+        "github.tokens="})
+class GithubIncrementalSyncTest {
+
+    private static final GithubStub GITHUB = new GithubStub();
+
+    // GitHub weeks start on Sunday: 3 and 10 March 2024
+    private static final long WEEK_1 = 1709424000L;
+    private static final long WEEK_2 = 1710028800L;
+
+    private static final String CONTRIBUTORS = "/repos/octo/sync-test/stats/contributors";
+    private static final String COMMITS = "/repos/octo/sync-test/commits";
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private GithubApiService githubApiService;
+
+    @Autowired
+    private GithubRepositoryRepository repoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private GithubTestProject fixture;
+
+    @DynamicPropertySource
+    static void githubStub(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", GITHUB::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        GITHUB.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        GITHUB.reset();
+        fixture = new GithubTestProject(context, "octo", "sync-test", "alice", "bob");
+
+        // c1 and c2 by alice in week 1; c2 becomes the cursor
+        GITHUB.json(CONTRIBUTORS, "[" + contributor("alice", week(WEEK_1, 10, 2, 2)) + "]");
+        GITHUB.route(COMMITS, (query, body) -> GithubStub.Response.json(
+                "[" + commit("c2", "alice", "2024-03-06T10:00:00Z", "c1") + "]"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (fixture != null) fixture.delete();
+    }
+
+    @Test
+    void fullIncrementalAndFullResyncStoreTheSameWeeks() {
+        githubApiService.syncProjectRepositories(fixture.project.getProjectId(), GithubRateLimiter.Priority.INTERACTIVE);
+        assertThat(fixture.storedWeeks()).containsExactly(row("alice", WEEK_1, 2, 10, 2));
+        assertThat(cursor()).isEqualTo("c2");
+
+        // c3 (alice) and c4 (bob) land in week 2; the incremental sync lists them after the cursor
+        GITHUB.json(CONTRIBUTORS, "[" + contributor("alice", week(WEEK_1, 10, 2, 2), week(WEEK_2, 5, 1, 1)) + ","
+                + contributor("bob", week(WEEK_2, 7, 0, 1)) + "]");
+        GITHUB.route(COMMITS, (query, body) -> GithubStub.Response.json(query.contains("since=")
+                ? "[" + commit("c4", "bob", "2024-03-12T11:00:00Z", "c3") + ","
+                      + commit("c3", "alice", "2024-03-12T10:00:00Z", "c2") + ","
+                      + commit("c2", "alice", "2024-03-06T10:00:00Z", "c1") + "]"
+                : "[" + commit("c4", "bob", "2024-03-12T11:00:00Z", "c3") + "]"));
+        GITHUB.json(COMMITS + "/c3", detail("c3", 5, 1, "c2"));
+        GITHUB.json(COMMITS + "/c4", detail("c4", 7, 0, "c3"));
+        fixture.markStale();
+
+        githubApiService.syncProjectRepositories(fixture.project.getProjectId(), GithubRateLimiter.Priority.INTERACTIVE);
+        List<String> incremental = fixture.storedWeeks();
+        assertThat(incremental).containsExactly(
+                row("alice", WEEK_1, 2, 10, 2), row("alice", WEEK_2, 1, 5, 1), row("bob", WEEK_2, 1, 7, 0));
+        assertThat(GITHUB.hits(CONTRIBUTORS)).isEqualTo(1);
+        assertThat(cursor()).isEqualTo("c4");
+
+        // Without a cursor the next sync reads stats/contributors again and must agree
+        fixture.resetSync();
+
+        githubApiService.syncProjectRepositories(fixture.project.getProjectId(), GithubRateLimiter.Priority.INTERACTIVE);
+        assertThat(GITHUB.hits(CONTRIBUTORS)).isEqualTo(2);
+        assertThat(fixture.storedWeeks()).isEqualTo(incremental);
+    }
+
+    @Test
+    void aMergeAfterTheCursorSendsTheRepositoryToAFullResync() {
+        githubApiService.syncProjectRepositories(fixture.project.getProjectId(), GithubRateLimiter.Priority.INTERACTIVE);
+
+        // f1 was committed on a branch before the cursor, so 'since' lists only its merge m
+        GITHUB.json(CONTRIBUTORS, "[" + contributor("alice", week(WEEK_1, 14, 2, 3)) + "]");
+        GITHUB.route(COMMITS, (query, body) -> GithubStub.Response.json(query.contains("since=")
+                ? "[" + commit("m", "alice", "2024-03-07T10:00:00Z", "c2", "f1") + ","
+                      + commit("c2", "alice", "2024-03-06T10:00:00Z", "c1") + "]"
+                : "[" + commit("m", "alice", "2024-03-07T10:00:00Z", "c2", "f1") + "]"));
+        fixture.markStale();
+
+        githubApiService.syncProjectRepositories(fixture.project.getProjectId(), GithubRateLimiter.Priority.INTERACTIVE);
+        assertThat(GITHUB.hits(CONTRIBUTORS)).isEqualTo(2);
+        assertThat(GITHUB.hits(COMMITS + "/m")).isZero();
+        assertThat(fixture.storedWeeks()).containsExactly(row("alice", WEEK_1, 3, 14, 2));
+        assertThat(cursor()).isEqualTo("m");
+    }
+
+    @Test
+    void theCursorOnlyAdvancesFromTheShaItWasReadAt() {
+        githubApiService.syncProjectRepositories(fixture.project.getProjectId(), GithubRateLimiter.Priority.INTERACTIVE);
+        Integer repoId = fixture.repo.getRepoId();
+        LocalDateTime now = LocalDateTime.now();
+
+        Integer moved = transactionTemplate.execute(tx ->
+                repoRepository.advanceSyncCursor(repoId, "c1", "c9", now, null, now));
+        assertThat(moved).isZero();
+        assertThat(cursor()).isEqualTo("c2");
+
+        moved = transactionTemplate.execute(tx -> repoRepository.advanceSyncCursor(repoId, "c2", "c9", now, null, now));
+        assertThat(moved).isEqualTo(1);
+        assertThat(cursor()).isEqualTo("c9");
+    }
+
+    @Test
+    void concurrentIncrementalSyncsCountNewCommitsOnce() throws Exception {
+        githubApiService.syncProjectRepositories(fixture.project.getProjectId(), GithubRateLimiter.Priority.INTERACTIVE);
+
+        // Both syncs must have listed c3 before either folds it in
+        CyclicBarrier bothListed = new CyclicBarrier(2);
+        GITHUB.route(COMMITS, (query, body) -> GithubStub.Response.json(
+                "[" + commit("c3", "alice", "2024-03-12T10:00:00Z", "c2") + ","
+                        + commit("c2", "alice", "2024-03-06T10:00:00Z", "c1") + "]"));
+        GITHUB.route(COMMITS + "/c3", (query, body) -> {
+            bothListed.await(10, TimeUnit.SECONDS);
+            return GithubStub.Response.json(detail("c3", 5, 1, "c2"));
+        });
+        fixture.markStale();
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> githubApiService.syncProjectRepositories(
+                fixture.project.getProjectId(), GithubRateLimiter.Priority.INTERACTIVE));
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> githubApiService.syncProjectRepositories(
+                fixture.project.getProjectId(), GithubRateLimiter.Priority.INTERACTIVE));
+        CompletableFuture.allOf(first, second).get(30, TimeUnit.SECONDS);
+
+        assertThat(GITHUB.hits(COMMITS + "/c3")).isEqualTo(2);
+        assertThat(fixture.storedWeeks()).containsExactly(
+                row("alice", WEEK_1, 2, 10, 2), row("alice", WEEK_2, 1, 5, 1));
+        assertThat(cursor()).isEqualTo("c3");
+    }
+
+    private String cursor() {
+        return jdbcTemplate.queryForObject("SELECT last_commit_sha FROM github_repositories WHERE repo_id = ?",
+                String.class, fixture.repo.getRepoId());
+    }
+
+    static String row(String login, long weekStart, int commits, int additions, int deletions) {
+        int yearWeek = WeekBuckets.yearWeekOf(WeekBuckets.githubWeekIndexOf(weekStart));
+        return String.format("%s %d-%02d %d +%d -%d", login, yearWeek / 100, yearWeek % 100, commits, additions, deletions);
+    }
+
+    static String contributor(String login, String... weeks) {
+        return "{\"author\":{\"login\":\"" + login + "\"},\"weeks\":[" + String.join(",", weeks) + "]}";
+    }
+
+    static String week(long start, int additions, int deletions, int commits) {
+        return "{\"w\":" + start + ",\"a\":" + additions + ",\"d\":" + deletions + ",\"c\":" + commits + "}";
+    }
+
+    /** A /commits listing entry; authored and committed at {@code date}. */
+    static String commit(String sha, String login, String date, String... parents) {
+        return "{\"sha\":\"" + sha + "\",\"html_url\":\"https://github.com/octo/sync-test/commit/" + sha + "\","
+                + "\"commit\":{\"message\":\"" + sha + "\",\"author\":{\"date\":\"" + date + "\"},"
+                + "\"committer\":{\"date\":\"" + date + "\"}},"
+                + "\"author\":{\"login\":\"" + login + "\"},\"parents\":" + parents(parents) + "}";
+    }
+
+    /** A /commits/{sha} response with one changed file. */
+    static String detail(String sha, int additions, int deletions, String... parents) {
+        return "{\"sha\":\"" + sha + "\",\"stats\":{\"additions\":" + additions + ",\"deletions\":" + deletions + "},"
+                + "\"files\":[{\"filename\":\"a.txt\"}],\"parents\":" + parents(parents) + "}";
+    }
+
+    private static String parents(String... shas) {
+        StringBuilder json = new StringBuilder("[");
+        for (String sha : shas) {
+            if (json.length() > 1) json.append(',');
+            json.append("{\"sha\":\"").append(sha).append("\"}");
+        }
+        return json.append(']').toString();
+    }
+}
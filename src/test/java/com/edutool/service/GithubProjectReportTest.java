@@ -0,0 +1,185 @@
+package com.edutool.service;
+
+import com.edutool.dto.response.CommitReportResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static com.edutool.service.GithubIncrementalSyncTest.commit;
+import static com.edutool.service.GithubIncrementalSyncTest.contributor;
+import static com.edutool.service.GithubIncrementalSyncTest.week;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The project report cache and the sharing of in-flight computations, against
+ * {@link GithubStub}: one aggregation per data version, and one GitHub fan-out for
+ * identical concurrent requests.
+ */
+@SpringBootTest(properties = {
+        "github.cache.enabled=false",
+        "github.commit-cache.enabled=false",
+        "github.sync.enabled=false",
+        "github.token=",
+        "github.tokens="})
+class GithubProjectReportTest {
+
+    private static final GithubStub GITHUB = new GithubStub();
+
+    private static final String CONTRIBUTORS = "/repos/octo/report-test/stats/contributors";
+    private static final String COMMITS = "/repos/octo/report-test/commits";
+    private static final String STATS = "[" + contributor("alice", week(1709424000L, 10, 2, 2)) + "]";
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private GithubApiService githubApiService;
+
+    private GithubTestProject fixture;
+
+    @DynamicPropertySource
+    static void githubStub(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", GITHUB::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        GITHUB.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        GITHUB.reset();
+        fixture = new GithubTestProject(context, "octo", "report-test", "alice");
+        GITHUB.json(CONTRIBUTORS, STATS);
+        GITHUB.json(COMMITS, "[" + commit("c2", "alice", "2024-03-06T10:00:00Z", "c1") + "]");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (fixture != null) fixture.delete();
+    }
+
+    @Test
+    void bothFormatsAreRenderedFromOneAggregation() throws Exception {
+        CommitReportResponse json = report(GithubRateLimiter.Priority.INTERACTIVE, false);
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        githubApiService.generateCommitCsvReport(fixture.project.getProjectId(), null, null).writeTo(csv);
+
+        assertThat(GITHUB.hits(CONTRIBUTORS)).isEqualTo(1);
+        assertThat(csv.toString()).contains("alice");
+        assertThat(report(GithubRateLimiter.Priority.INTERACTIVE, false).getGeneratedAt())
+                .isEqualTo(json.getGeneratedAt());
+    }
+
+    @Test
+    void aRefetchedRepositoryInvalidatesTheCachedReport() {
+        CommitReportResponse first = report(GithubRateLimiter.Priority.INTERACTIVE, false);
+
+        fixture.markStale();
+        CommitReportResponse second = report(GithubRateLimiter.Priority.INTERACTIVE, false);
+
+        // synced incrementally from the cursor
+        assertThat(GITHUB.hits(COMMITS)).isEqualTo(2);
+        assertThat(second.getGeneratedAt()).isNotEqualTo(first.getGeneratedAt());
+        assertThat(second.getSummary()).singleElement()
+                .satisfies(s -> assertThat(s.getTotalCommits()).isEqualTo(2));
+    }
+
+    @Test
+    void refreshBypassesTheCache() {
+        CommitReportResponse first = report(GithubRateLimiter.Priority.INTERACTIVE, false);
+        CommitReportResponse refreshed = report(GithubRateLimiter.Priority.INTERACTIVE, true);
+
+        assertThat(GITHUB.hits(CONTRIBUTORS)).isEqualTo(2);
+        assertThat(refreshed.getGeneratedAt()).isNotEqualTo(first.getGeneratedAt());
+        // the refreshed aggregation replaces the cached one
+        assertThat(report(GithubRateLimiter.Priority.INTERACTIVE, false).getGeneratedAt())
+                .isEqualTo(refreshed.getGeneratedAt());
+    }
+
+    @Test
+    void identicalConcurrentRequestsShareOneComputation() throws Exception {
+        assertSecondRequest(GithubRateLimiter.Priority.INTERACTIVE, false,
+                GithubRateLimiter.Priority.INTERACTIVE, false, true);
+    }
+
+    @Test
+    void aPlainRequestJoinsARefreshButNotTheOtherWayRound() throws Exception {
+        assertSecondRequest(GithubRateLimiter.Priority.INTERACTIVE, true,
+                GithubRateLimiter.Priority.INTERACTIVE, false, true);
+        fixture.resetSync();
+        assertSecondRequest(GithubRateLimiter.Priority.INTERACTIVE, false,
+                GithubRateLimiter.Priority.INTERACTIVE, true, false);
+    }
+
+    @Test
+    void aBackgroundRequestJoinsAnInteractiveOneButNotTheOtherWayRound() throws Exception {
+        assertSecondRequest(GithubRateLimiter.Priority.INTERACTIVE, false,
+                GithubRateLimiter.Priority.BACKGROUND, false, true);
+        fixture.resetSync();
+        assertSecondRequest(GithubRateLimiter.Priority.BACKGROUND, false,
+                GithubRateLimiter.Priority.INTERACTIVE, false, false);
+    }
+
+    /**
+     * Starts a request whose stats/contributors call hangs, then a second one, and checks
+     * whether the second joined the first or fetched on its own.
+     */
+    private void assertSecondRequest(
+            GithubRateLimiter.Priority firstPriority, boolean firstRefresh,
+            GithubRateLimiter.Priority secondPriority, boolean secondRefresh, boolean joins) throws Exception {
+
+        int before = GITHUB.hits(CONTRIBUTORS);
+        CountDownLatch release = new CountDownLatch(1);
+        GITHUB.route(CONTRIBUTORS, (query, body) -> {
+            release.await(20, TimeUnit.SECONDS);
+            return GithubStub.Response.json(STATS);
+        });
+
+        CompletableFuture<CommitReportResponse> first =
+                CompletableFuture.supplyAsync(() -> report(firstPriority, firstRefresh));
+        await(() -> GITHUB.hits(CONTRIBUTORS) == before + 1);
+        FutureTask<CommitReportResponse> second = new FutureTask<>(() -> report(secondPriority, secondRefresh));
+        Thread secondThread = new Thread(second);
+        secondThread.start();
+        if (joins) {
+            // parked on the first request's future; it would have called GitHub by now otherwise
+            await(() -> secondThread.getState() == Thread.State.WAITING);
+            Thread.sleep(300);
+        } else {
+            await(() -> GITHUB.hits(CONTRIBUTORS) == before + 2);
+        }
+        release.countDown();
+
+        CommitReportResponse firstReport = first.get(30, TimeUnit.SECONDS);
+        CommitReportResponse secondReport = second.get(30, TimeUnit.SECONDS);
+        assertThat(GITHUB.hits(CONTRIBUTORS)).isEqualTo(before + (joins ? 1 : 2));
+        if (joins) assertThat(secondReport.getGeneratedAt()).isEqualTo(firstReport.getGeneratedAt());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long giveUpAt = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("waiting for the GitHub stub").isLessThan(giveUpAt);
+            Thread.sleep(20);
+        }
+    }
+
+    private CommitReportResponse report(GithubRateLimiter.Priority priority, boolean refresh) {
+        return githubApiService.generateCommitJsonReport(fixture.project.getProjectId(), null, null, priority, refresh);
+    }
+}
@@ -0,0 +1,28 @@
+package com.edutool.service;
+
+import com.edutool.service.GithubRepoCircuitBreaker.FailureKind;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GithubRepoCircuitBreakerTest {
+
+    @Test
+    void missingOrForbiddenReposAreAccessFailures() {
+        assertThat(GithubRepoCircuitBreaker.kindOf(401, "Bad credentials")).isEqualTo(FailureKind.ACCESS);
+        assertThat(GithubRepoCircuitBreaker.kindOf(404, "Not Found")).isEqualTo(FailureKind.ACCESS);
+        assertThat(GithubRepoCircuitBreaker.kindOf(410, "Gone")).isEqualTo(FailureKind.ACCESS);
+        assertThat(GithubRepoCircuitBreaker.kindOf(451, "Unavailable For Legal Reasons")).isEqualTo(FailureKind.ACCESS);
+        assertThat(GithubRepoCircuitBreaker.kindOf(403, "Resource not accessible by integration")).isEqualTo(FailureKind.ACCESS);
+        assertThat(GithubRepoCircuitBreaker.kindOf(403, null)).isEqualTo(FailureKind.ACCESS);
+    }
+
+    @Test
+    void rateLimitsServerErrorsAndTimeoutsAreTransient() {
+        assertThat(GithubRepoCircuitBreaker.kindOf(403, "API Rate Limit exceeded for user")).isEqualTo(FailureKind.TRANSIENT);
+        assertThat(GithubRepoCircuitBreaker.kindOf(403, "You have exceeded a secondary rate limit")).isEqualTo(FailureKind.TRANSIENT);
+        assertThat(GithubRepoCircuitBreaker.kindOf(429, null)).isEqualTo(FailureKind.TRANSIENT);
+        assertThat(GithubRepoCircuitBreaker.kindOf(502, "Bad Gateway")).isEqualTo(FailureKind.TRANSIENT);
+        assertThat(GithubRepoCircuitBreaker.kindOf(null, "Read timed out")).isEqualTo(FailureKind.TRANSIENT);
+    }
+}
@@ -0,0 +1,43 @@
+package com.edutool.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GithubRetryPolicyTest {
+
+    @Test
+    void readsDeltaSeconds() {
+        assertThat(GithubRetryPolicy.retryAfterMillis(retryAfter("30"))).isEqualTo(30_000);
+        assertThat(GithubRetryPolicy.retryAfterMillis(retryAfter(" 0 "))).isZero();
+        assertThat(GithubRetryPolicy.retryAfterMillis(retryAfter("-5"))).isZero();
+    }
+
+    @Test
+    void readsHttpDates() {
+        String inAMinute = ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        assertThat(GithubRetryPolicy.retryAfterMillis(retryAfter(inAMinute))).isBetween(50_000L, 60_000L);
+
+        String past = ZonedDateTime.now(ZoneOffset.UTC).minusHours(1).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        assertThat(GithubRetryPolicy.retryAfterMillis(retryAfter(past))).isZero();
+    }
+
+    @Test
+    void returnsMinusOneWhenAbsentOrUnreadable() {
+        assertThat(GithubRetryPolicy.retryAfterMillis(null)).isEqualTo(-1);
+        assertThat(GithubRetryPolicy.retryAfterMillis(new HttpHeaders())).isEqualTo(-1);
+        assertThat(GithubRetryPolicy.retryAfterMillis(retryAfter(" "))).isEqualTo(-1);
+        assertThat(GithubRetryPolicy.retryAfterMillis(retryAfter("soon"))).isEqualTo(-1);
+    }
+
+    private static HttpHeaders retryAfter(String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, value);
+        return headers;
+    }
+}
@@ -0,0 +1,98 @@
+package com.edutool.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for api.github.com: each path answers with what its {@link Route}
+ * returns for the request's query string and body, and calls are counted per path.
+ * Unknown paths get a 404 like GitHub's.
+ */
+class GithubStub implements AutoCloseable {
+
+    @FunctionalInterface
+    interface Route {
+        Response respond(String query, String body) throws Exception;
+    }
+
+    record Response(int status, String body) {
+        static Response json(String body) {
+            return new Response(200, body);
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+
+    GithubStub() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    void route(String path, Route route) {
+        routes.put(path, route);
+    }
+
+    void json(String path, String body) {
+        route(path, (query, requestBody) -> Response.json(body));
+    }
+
+    int hits(String path) {
+        AtomicInteger count = hits.get(path);
+        return count != null ? count.get() : 0;
+    }
+
+    void reset() {
+        routes.clear();
+        hits.clear();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        hits.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet();
+        Response response;
+        try {
+            Route route = routes.get(path);
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            response = route != null
+                    ? route.respond(exchange.getRequestURI().getRawQuery(), body)
+                    : new Response(404, "{\"message\":\"Not Found\"}");
+        } catch (Exception ex) {
+            response = new Response(500, "{\"message\":\"" + ex + "\"}");
+        }
+        byte[] bytes = response.body().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response.status(), bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,121 @@
+package com.edutool.service;
+
+import com.edutool.model.Course;
+import com.edutool.model.CourseEnrollment;
+import com.edutool.model.GithubRepository;
+import com.edutool.model.Project;
+import com.edutool.model.Role;
+import com.edutool.model.Student;
+import com.edutool.model.User;
+import com.edutool.model.UserStatus;
+import com.edutool.repository.CourseEnrollmentRepository;
+import com.edutool.repository.CourseRepository;
+import com.edutool.repository.GithubRepositoryRepository;
+import com.edutool.repository.ProjectRepository;
+import com.edutool.repository.StudentRepository;
+import com.edutool.repository.UserRepository;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A course with one project, its enrolled students (one per GitHub login) and one
+ * repository, saved for tests that sync against {@link GithubStub}.
+ * {@link #delete()} removes it again together with everything synced for it.
+ */
+class GithubTestProject {
+
+    final Course course;
+    final Project project;
+    final List<Student> students = new ArrayList<>();
+    final GithubRepository repo;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    GithubTestProject(ApplicationContext context, String owner, String repoName, String... logins) {
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+
+        Course c = new Course();
+        c.setCourseCode("TEST-" + suffix);
+        c.setCourseName("Test course");
+        course = context.getBean(CourseRepository.class).save(c);
+
+        Project p = new Project();
+        p.setProjectCode("TEST-" + suffix);
+        p.setProjectName("Test project");
+        p.setCourse(course);
+        project = context.getBean(ProjectRepository.class).save(p);
+
+        for (String login : logins) {
+            User u = new User();
+            u.setUsername(login + "-" + suffix);
+            u.setPasswordHash("-");
+            u.setRole(Role.STUDENT);
+            u.setStatus(UserStatus.ACTIVE);
+            u.setEmail(login + "-" + suffix + "@example.com");
+            u.setFullName(login);
+            User user = context.getBean(UserRepository.class).save(u);
+
+            Student s = new Student();
+            s.setUser(user);
+            s.setStudentCode(login + "-" + suffix);
+            s.setGithubUsername(login);
+            Student student = context.getBean(StudentRepository.class).save(s);
+            students.add(student);
+
+            CourseEnrollment e = new CourseEnrollment();
+            e.setStudent(student);
+            e.setCourse(course);
+            e.setProject(project);
+            e.setRoleInProject("MEMBER");
+            e.setGroupNumber(1);
+            context.getBean(CourseEnrollmentRepository.class).save(e);
+        }
+
+        GithubRepository r = new GithubRepository();
+        r.setOwner(owner);
+        r.setRepoName(repoName);
+        r.setRepoUrl("https://github.com/" + owner + "/" + repoName);
+        r.setIsSelected(true);
+        r.setProject(project);
+        repo = context.getBean(GithubRepositoryRepository.class).save(r);
+    }
+
+    /** Clears the sync stamp, so the next report or sync refetches the repository. */
+    void markStale() {
+        jdbcTemplate.update("UPDATE github_repositories SET last_synced_at = NULL WHERE repo_id = ?", repo.getRepoId());
+    }
+
+    /** Also forgets the sync cursor, so the next sync reads the full history again. */
+    void resetSync() {
+        jdbcTemplate.update("UPDATE github_repositories SET last_synced_at = NULL, last_commit_sha = NULL, " +
+                "last_commit_at = NULL, commits_etag = NULL WHERE repo_id = ?", repo.getRepoId());
+    }
+
+    /** Stored weeks of the repository as "login year-week commits +additions -deletions", in week order. */
+    List<String> storedWeeks() {
+        return jdbcTemplate.query(
+                "SELECT s.github_username, c.year, c.week_number, c.total_commits, c.additions, c.deletions " +
+                "FROM commit_contributions c JOIN students s ON s.student_id = c.student_id " +
+                "WHERE c.repo_id = ? ORDER BY s.github_username, c.year, c.week_number",
+                (rs, i) -> String.format("%s %d-%02d %d +%d -%d", rs.getString(1), rs.getInt(2), rs.getInt(3),
+                        rs.getInt(4), rs.getInt(5), rs.getInt(6)),
+                repo.getRepoId());
+    }
+
+    void delete() {
+        jdbcTemplate.update("DELETE FROM commit_contributions WHERE repo_id = ?", repo.getRepoId());
+        jdbcTemplate.update("DELETE FROM github_repositories WHERE repo_id = ?", repo.getRepoId());
+        jdbcTemplate.update("DELETE FROM course_enrollments WHERE project_id = ?", project.getProjectId());
+        for (Student s : students) {
+            jdbcTemplate.update("DELETE FROM students WHERE student_id = ?", s.getStudentId());
+            jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", s.getUser().getUserId());
+        }
+        jdbcTemplate.update("DELETE FROM projects WHERE project_id = ?", project.getProjectId());
+        jdbcTemplate.update("DELETE FROM courses WHERE course_id = ?", course.getCourseId());
+    }
+}
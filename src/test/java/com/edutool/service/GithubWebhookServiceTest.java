@@ -0,0 +1,60 @@
+package com.edutool.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GithubWebhookServiceTest {
+
+    private static final String SECRET = "It's a Secret to Everybody";
+    private static final byte[] BODY = "Hello, World!".getBytes(StandardCharsets.UTF_8);
+
+    // Example delivery from GitHub's "Validating webhook deliveries" documentation
+    private static final String SIGNATURE =
+            "sha256=757107ea0eb2509fc211221cce984b8a37570b6d7586c22c46f4379c8b043e17";
+
+    @Test
+    void acceptsTheSignatureGithubComputes() {
+        assertThat(service(SECRET).isSignatureValid(BODY, SIGNATURE)).isTrue();
+        assertThat(service(SECRET).isSignatureValid(BODY, "sha256=" + hmac("other", BODY))).isFalse();
+    }
+
+    @Test
+    void rejectsTamperedBodiesAndMalformedHeaders() {
+        GithubWebhookService service = service(SECRET);
+        assertThat(service.isSignatureValid("Hello, World?".getBytes(StandardCharsets.UTF_8), SIGNATURE)).isFalse();
+        assertThat(service.isSignatureValid(BODY, null)).isFalse();
+        assertThat(service.isSignatureValid(BODY, SIGNATURE.substring("sha256=".length()))).isFalse();
+        assertThat(service.isSignatureValid(BODY, "sha1=" + hmac(SECRET, BODY))).isFalse();
+        assertThat(service.isSignatureValid(BODY, "sha256=not-hex")).isFalse();
+        assertThat(service.isSignatureValid(BODY, "sha256=")).isFalse();
+    }
+
+    @Test
+    void rejectsEverythingWithoutASecret() {
+        assertThat(service("").isSignatureValid(BODY, SIGNATURE)).isFalse();
+        assertThat(service(null).isSignatureValid(BODY, SIGNATURE)).isFalse();
+    }
+
+    private static GithubWebhookService service(String secret) {
+        GithubWebhookService service = new GithubWebhookService(null, null, null, null);
+        ReflectionTestUtils.setField(service, "secret", secret);
+        return service;
+    }
+
+    private static String hmac(String secret, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
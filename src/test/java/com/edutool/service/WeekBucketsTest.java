@@ -0,0 +1,126 @@
+package com.edutool.service;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.core.JsonParser;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeekBucketsTest {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    // Sunday; ISO week 2025-W09 runs Mon 24 Feb – Sun 2 Mar
+    private static final LocalDate SUNDAY = LocalDate.of(2025, 3, 2);
+
+    @Test
+    void weekIndexOfDateRoundTripsThroughIsoWeek() {
+        long index = WeekBuckets.weekIndexOf(LocalDate.of(2025, 3, 5));
+        assertThat(WeekBuckets.yearWeekOf(index)).isEqualTo(202510);
+        assertThat(WeekBuckets.weekIndexOf(2025, 10)).isEqualTo(index);
+        assertThat(WeekBuckets.weekIndexOf(LocalDate.of(2025, 3, 3))).isEqualTo(index);
+        assertThat(WeekBuckets.weekIndexOf(LocalDate.of(2025, 3, 9))).isEqualTo(index);
+    }
+
+    @Test
+    void yearWeekOfUsesTheWeekBasedYear() {
+        // 29 Dec 2025 is the Monday of 2026-W01
+        assertThat(WeekBuckets.yearWeekOf(WeekBuckets.weekIndexOf(LocalDate.of(2025, 12, 29)))).isEqualTo(202601);
+        // 1 Jan 2021 still belongs to 2020-W53
+        assertThat(WeekBuckets.yearWeekOf(WeekBuckets.weekIndexOf(LocalDate.of(2021, 1, 1)))).isEqualTo(202053);
+    }
+
+    @Test
+    void commitsFromSundayToSaturdayShareTheStatsWeek() {
+        long statsWeek = WeekBuckets.githubWeekIndexOf(epochOf(SUNDAY, 0, 0, 0));
+        assertThat(WeekBuckets.yearWeekOf(statsWeek)).isEqualTo(202509);
+
+        assertThat(WeekBuckets.githubWeekIndexOf(epochOf(SUNDAY, 23, 59, 59))).isEqualTo(statsWeek);
+        assertThat(WeekBuckets.githubWeekIndexOf(epochOf(SUNDAY.plusDays(3), 12, 0, 0))).isEqualTo(statsWeek);
+        assertThat(WeekBuckets.githubWeekIndexOf(epochOf(SUNDAY.plusDays(6), 23, 59, 59))).isEqualTo(statsWeek);
+        assertThat(WeekBuckets.githubWeekIndexOf(epochOf(SUNDAY.plusDays(7), 0, 0, 0))).isEqualTo(statsWeek + 1);
+        assertThat(WeekBuckets.githubWeekIndexOf(epochOf(SUNDAY, 0, 0, 0) - 1)).isEqualTo(statsWeek - 1);
+    }
+
+    @Test
+    void githubWeekIndexHandlesEpochsBefore1970() {
+        // Sunday 28 Dec 1969 opens the stats week that holds 1 Jan 1970
+        long statsWeek = WeekBuckets.githubWeekIndexOf(epochOf(LocalDate.of(1969, 12, 28), 0, 0, 0));
+        assertThat(WeekBuckets.githubWeekIndexOf(0)).isEqualTo(statsWeek);
+        assertThat(WeekBuckets.githubWeekIndexOf(-1)).isEqualTo(statsWeek);
+    }
+
+    @Test
+    void bucketsGrowInBothDirections() {
+        WeekBuckets buckets = new WeekBuckets();
+        buckets.add(10, 1, 5, 2);
+        buckets.add(8, 2, 7, 1);
+        buckets.add(13, 1, 0, 0);
+        buckets.add(10, 1, 1, 1);
+
+        assertThat(buckets.size()).isEqualTo(6);
+        assertThat(buckets.activeWeeks()).isEqualTo(3);
+        assertThat(buckets.weekIndex(0)).isEqualTo(8);
+        assertThat(buckets.commits(2)).isEqualTo(2);
+        assertThat(buckets.additions(2)).isEqualTo(6);
+        assertThat(buckets.deletions(2)).isEqualTo(3);
+        assertThat(buckets.isEmpty(1)).isTrue();
+    }
+
+    /**
+     * A full sync from stats/contributors, commits folded in one by one afterwards
+     * (incremental, push or /commits paths), and a later full resync must produce the
+     * same weekly rows.
+     */
+    @Test
+    void fullSyncThenIncrementalThenResyncGiveTheSameWeeks() {
+        long week1 = epochOf(SUNDAY, 0, 0, 0);
+        long week2 = epochOf(SUNDAY.plusDays(7), 0, 0, 0);
+
+        WeekBuckets synced = decode("""
+                [{"total":2,"weeks":[{"w":%d,"a":10,"d":1,"c":2}],"author":{"login":"alice"}}]
+                """.formatted(week1));
+
+        // Wednesday of the first stats week and Saturday of the second, each one commit
+        synced.add(WeekBuckets.githubWeekIndexOf(epochOf(SUNDAY.plusDays(3), 9, 30, 0)), 1, 4, 0);
+        synced.add(WeekBuckets.githubWeekIndexOf(epochOf(SUNDAY.plusDays(13), 22, 0, 0)), 1, 3, 2);
+
+        WeekBuckets resynced = decode("""
+                [{"total":4,"weeks":[{"w":%d,"a":14,"d":1,"c":3},{"w":%d,"a":3,"d":2,"c":1}],
+                  "author":{"login":"alice"}}]
+                """.formatted(week1, week2));
+
+        assertThat(rows(synced)).isEqualTo(rows(resynced))
+                .containsOnlyKeys(202509, 202510);
+    }
+
+    private static WeekBuckets decode(String body) {
+        WeekBuckets buckets = new WeekBuckets();
+        try (JsonParser parser = MAPPER.createParser(body)) {
+            new ContributorStatsDecoder(null, null).decode(parser, (login, weekStart, c, a, d) ->
+                    buckets.add(WeekBuckets.githubWeekIndexOf(weekStart), c, a, d));
+        }
+        return buckets;
+    }
+
+    /** yearWeek → [commits, additions, deletions], as written to commit_contributions. */
+    private static Map<Integer, String> rows(WeekBuckets buckets) {
+        Map<Integer, String> rows = new TreeMap<>();
+        for (int i = 0; i < buckets.size(); i++) {
+            if (buckets.isEmpty(i)) continue;
+            rows.put(buckets.yearWeek(i), buckets.commits(i) + "/" + buckets.additions(i) + "/" + buckets.deletions(i));
+        }
+        return rows;
+    }
+
+    private static long epochOf(LocalDate date, int hour, int minute, int second) {
+        Instant instant = date.atTime(hour, minute, second).toInstant(ZoneOffset.UTC);
+        return instant.getEpochSecond();
+    }
+}